@@ -0,0 +1,208 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/AsyncImage.java                                       *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package image;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Represents an image (from a URL, including <tt>file:</tt> URLs) that is
+ *    loaded in the background.  Creating one (with one of the
+ *    <tt>load</tt> methods) returns immediately; until the image is decoded
+ *    (on the {@link ImageCache} loading pool) a placeholder is drawn in its
+ *    place, then the real pixels are drawn instead.  Listeners added with
+ *    {@link #whenLoaded(Listener)} are told once the image has loaded (or
+ *    failed), so an animation can be redrawn, e.g., with
+ *    <tt>world.BigBang.redraw()</tt>.
+ *  <p>
+ *    The size and pinhole of an AsyncImage are those of its placeholder, and
+ *    never change, so Scenes holding it stay valid: the loaded pixels are
+ *    scaled to fit.  When the size is not known ahead of time a small
+ *    placeholder is used, and {@link #getImage()} returns the loaded image
+ *    at its real size, as a new Image, once it's loaded.
+ *  </p>
+ */
+public class AsyncImage extends Image{
+    /** Size of the placeholder when the size of the image is unknown */
+    public static int PLACEHOLDER_SIZE = 32;
+    
+    /** Told when an AsyncImage has finished loading */
+    public static interface Listener{
+        /** The image has been loaded (or failed to load, see
+         *    {@link AsyncImage#getError()}) */
+        public void loaded(AsyncImage img);
+    }
+    
+    protected String url;
+    protected Image placeholder;
+    /** Was the size given (rather than a stand-in placeholder)? */
+    protected boolean fixed;
+    
+    /** The loaded pixels, null until the image is loaded */
+    private volatile BufferedImage loaded;
+    private volatile Throwable error;
+    private volatile boolean done;
+    private boolean started;
+    private List<Listener> listeners = new ArrayList<Listener>();
+    
+    /** Load the image at the given URL.  Its size is only known once it has
+     *    been loaded, see {@link #getImage()}. */
+    public static AsyncImage load(String url){
+        return load(url, new Rectangle(PLACEHOLDER_SIZE, PLACEHOLDER_SIZE, "solid", "lightgray"), false);
+    }
+    /** Load the image at the given URL, scaled to the given size */
+    public static AsyncImage load(String url, int w, int h){
+        return load(url, new Rectangle(w, h, "solid", "lightgray"), true);
+    }
+    /** Load the image at the given URL, showing (and scaled to the size of)
+     *    the given placeholder until it's loaded */
+    public static AsyncImage load(String url, Image placeholder){
+        return load(url, placeholder, true);
+    }
+    /** Create an AsyncImage with the given placeholder, then start loading */
+    static AsyncImage load(String url, Image placeholder, boolean fixed){
+        AsyncImage a = new AsyncImage(url, placeholder, fixed);
+        a.start();
+        return a;
+    }
+    /** Create an AsyncImage with the given placeholder that is not loaded
+     *    until {@link #start()} is called (e.g., when decoded from a stream) */
+    static AsyncImage unloaded(String url, Image placeholder, boolean fixed){
+        return new AsyncImage(url, placeholder, fixed);
+    }
+    
+    /** Create an AsyncImage for the given URL with the given placeholder.
+     *    Loading is started separately, by {@link #start()} */
+    protected AsyncImage(String url, Image placeholder, boolean fixed){
+        super(placeholder.pinholeX, placeholder.pinholeY);
+        this.url = url;
+        this.placeholder = placeholder;
+        this.fixed = fixed;
+    }
+    /** Start loading the image, if it hasn't been already.  Images created
+     *    with the <tt>load</tt> methods are already loading; those decoded by
+     *    {@link ImageCodec} only load once this is called. */
+    public void start(){
+        synchronized(this.listeners){
+            if(this.started)return;
+            this.started = true;
+        }
+        final String key = ImageCache.urlKey(this.url);
+        BufferedImage img = ImageCache.lookup(key);
+        if(img != null){
+            this.finish(img, null);
+        }else{
+            final java.util.concurrent.Callable<BufferedImage> loader = ImageCache.urlLoader(this.url);
+            ImageCache.pool().execute(new Runnable(){
+                public void run(){
+                    try{
+                        finish(ImageCache.get(key, loader), null);
+                    }catch(Throwable t){
+                        finish(null, t);
+                    }
+                }
+            });
+        }
+    }
+    
+    /** Has the image finished loading (successfully or not)? */
+    public boolean isDone(){ return this.done; }
+    /** Has the image been successfully loaded? */
+    public boolean isLoaded(){ return this.loaded != null; }
+    /** Return the error from loading the image, or null */
+    public Throwable getError(){ return this.error; }
+    /** Return the URL of this image */
+    public String getURL(){ return this.url; }
+    /** Return (a new Image of) the loaded image at its real size, or the
+     *    placeholder if it hasn't loaded (yet) */
+    public Image getImage(){
+        BufferedImage img = this.loaded;
+        if(img == null)
+            return this.placeholder;
+        FromFile f = new FromFile();
+        f.init(img);
+        return f;
+    }
+    
+    /** Add a Listener to be told when the image has loaded.  If it has
+     *    already, the Listener is called immediately, otherwise it is called
+     *    on the loading thread. */
+    public AsyncImage whenLoaded(Listener l){
+        synchronized(this.listeners){
+            if(!this.done){
+                this.listeners.add(l);
+                return this;
+            }
+        }
+        l.loaded(this);
+        return this;
+    }
+    /** Wait (at most the given number of milliseconds) for the image to
+     *    load, returning whether it has finished */
+    public boolean await(long millis) throws InterruptedException{
+        synchronized(this.listeners){
+            long end = System.currentTimeMillis()+millis;
+            while(!this.done){
+                long left = end-System.currentTimeMillis();
+                if(left <= 0)return false;
+                this.listeners.wait(left);
+            }
+            return true;
+        }
+    }
+    
+    /** Swap in the loaded image (or record the error), and tell the listeners */
+    private void finish(BufferedImage img, Throwable err){
+        List<Listener> ls;
+        synchronized(this.listeners){
+            if(img != null)
+                this.loaded = img;
+            this.error = err;
+            this.done = true;
+            ls = new ArrayList<Listener>(this.listeners);
+            this.listeners.clear();
+            this.listeners.notifyAll();
+        }
+        for(Listener l : ls)
+            l.loaded(this);
+    }
+    
+    /** Return the width of this Image (that of its placeholder) */
+    public int width(){ return this.placeholder.width(); }
+    /** Return the height of this Image (that of its placeholder) */
+    public int height(){ return this.placeholder.height(); }
+    
+    /** Paint this image (or its placeholder) into the given Graphics */
+    public void paint(Graphics g, int x, int y){
+        BufferedImage img = this.loaded;
+        if(img == null){
+            this.placeholder.paint(g, x, y);
+        }else{
+            g.drawImage(img, round(x-this.pinholeX), round(y-this.pinholeY),
+                        this.placeholder.width(), this.placeholder.height(), null);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/BandWriter.java                                       *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package image;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/** Writes (huge) Scenes to image files without ever holding all of their
+ *    pixels.  The Scene is drawn a band of rows at a time into a single
+ *    reused buffer, and each band is passed straight to a streaming encoder,
+ *    so memory use depends on the width of the Scene and the height of a
+ *    band, not the size of the whole image.  PNG (RGBA), PPM (P6, RGB only)
+ *    and PAM (P7, RGB_ALPHA) files are supported.
+ *  <p>
+ *    Bands are drawn shifted up to the top of the buffer.  The pixels match
+ *    {@link Scene#toFile(String)}, except where a transformed (e.g., rotated)
+ *    edge falls exactly half-way between pixels, since Java2D rounds the
+ *    shifted coordinates slightly differently.
+ *  </p>
+ */
+public class BandWriter{
+    /** Default number of rows in a band */
+    public static final int BAND = 64;
+    
+    private BandWriter(){}
+    
+    /** Write the Scene to the given file, the format is chosen by the
+     *    extension of the file name (png, ppm, or pam) */
+    public static void write(Scene scn, String name, int band) throws IOException{
+        int dot = name.lastIndexOf('.');
+        String ext = name.substring(dot+1).toLowerCase();
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(name), 1<<16);
+        try{
+            write(scn, encoder(ext, out), band);
+        }finally{
+            out.close();
+        }
+    }
+    /** Create an Encoder for the given format */
+    static Encoder encoder(String ext, OutputStream out){
+        return encoder(ext, out, Deflater.DEFAULT_COMPRESSION);
+    }
+    /** Create an Encoder for the given format, PNGs are compressed with the
+     *    given (<tt>java.util.zip.Deflater</tt>) level */
+    static Encoder encoder(String ext, OutputStream out, int level){
+        if(ext.equals("png"))return new PNG(out, level);
+        if(ext.equals("ppm"))return new PNM(out, false);
+        if(ext.equals("pam"))return new PNM(out, true);
+        throw new RuntimeException("Unsupported Streaming Format: "+ext);
+    }
+    
+    /** Draw the Scene in bands of the given height, passing them to the
+     *    given Encoder */
+    static void write(Scene scn, Encoder enc, int band) throws IOException{
+        if(band <= 0)
+            throw new RuntimeException("Bad Band Height: "+band);
+        int w = Image.ceil(scn.width()), h = Image.ceil(scn.height());
+        int px = Image.round(scn.pinholeX), py = Image.round(scn.pinholeY);
+        band = Math.min(band, Math.max(h, 1));
+        
+        DisplayList dl = scn.displayList();
+        RasterImage buff = new RasterImage(w, band);
+        int[] pixels = buff.pixels();
+        int off = buff.offset(), stride = buff.stride();
+        
+        enc.begin(w, h);
+        for(int y = 0; y < h; y += band){
+            int rows = Math.min(band, h-y);
+            buff.fill(0);
+            if(SoftRenderer.isEnabled()){
+                SoftRenderer.paint(dl, buff, px, py-y, new Rectangle(0, 0, w, rows));
+                enc.rows(pixels, off, stride, rows);
+                continue;
+            }
+            Graphics2D g = buff.getGraphics();
+            g.translate(0, -y);
+            dl.paint(g, px, py, new Rectangle(0, y, w, rows));
+            g.dispose();
+            enc.rows(pixels, off, stride, rows);
+        }
+        enc.end();
+    }
+    
+    /** Streaming image encoder, given the image a few rows at a time */
+    static abstract class Encoder{
+        int w, h;
+        /** Start an image with the given size */
+        void begin(int w, int h) throws IOException{
+            this.w = w;
+            this.h = h;
+        }
+        /** Encode the next rows of ARGB pixels */
+        abstract void rows(int[] px, int off, int stride, int rows) throws IOException;
+        /** Finish the image */
+        abstract void end() throws IOException;
+    }
+    
+    /** Binary PPM (RGB) or PAM (RGBA) files */
+    static class PNM extends Encoder{
+        OutputStream out;
+        boolean alpha;
+        byte[] line;
+        
+        PNM(OutputStream out, boolean alpha){
+            this.out = out;
+            this.alpha = alpha;
+        }
+        void begin(int w, int h) throws IOException{
+            super.begin(w, h);
+            String hdr = this.alpha ?
+                    ("P7\nWIDTH "+w+"\nHEIGHT "+h+"\nDEPTH 4\nMAXVAL 255\nTUPLTYPE RGB_ALPHA\nENDHDR\n") :
+                    ("P6\n"+w+" "+h+"\n255\n");
+            this.out.write(hdr.getBytes("US-ASCII"));
+            this.line = new byte[w*(this.alpha ? 4 : 3)];
+        }
+        void rows(int[] px, int off, int stride, int rows) throws IOException{
+            for(int r = 0; r < rows; r++){
+                int i = 0;
+                for(int p = off+r*stride, end = p+this.w; p < end; p++){
+                    int c = px[p];
+                    this.line[i++] = (byte)(c >> 16);
+                    this.line[i++] = (byte)(c >> 8);
+                    this.line[i++] = (byte)c;
+                    if(this.alpha)
+                        this.line[i++] = (byte)(c >>> 24);
+                }
+                this.out.write(this.line);
+            }
+        }
+        void end() throws IOException{ this.out.flush(); }
+    }
+    
+    /** 8-bit RGBA PNG files.  Each row is filtered with whichever of the
+     *    standard filters gives the smallest sum of (signed) bytes, and the
+     *    compressed data is written in IDAT chunks as it is produced. */
+    static class PNG extends Encoder{
+        static final byte[] SIGNATURE = { (byte)137, 80, 78, 71, 13, 10, 26, 10 };
+        static final int CHUNK = 1<<16;
+        
+        OutputStream out;
+        int level;
+        Deflater defl;
+        DeflaterOutputStream data;
+        byte[] prev, curr, best, trial;
+        
+        PNG(OutputStream out, int level){
+            this.out = out;
+            this.level = level;
+        }
+        
+        void begin(int w, int h) throws IOException{
+            super.begin(w, h);
+            java.io.ByteArrayOutputStream hdr = new java.io.ByteArrayOutputStream(13);
+            DataOutputStream d = new DataOutputStream(hdr);
+            d.writeInt(w);
+            d.writeInt(h);
+            d.writeByte(8);   // Bit depth
+            d.writeByte(6);   // RGBA
+            d.writeByte(0);   // Deflate
+            d.writeByte(0);   // Adaptive filtering
+            d.writeByte(0);   // No interlace
+            this.out.write(SIGNATURE);
+            chunk(this.out, "IHDR", hdr.toByteArray(), 13);
+            
+            this.defl = new Deflater(this.level);
+            this.data = new DeflaterOutputStream(new IDAT(this.out), this.defl, CHUNK);
+            int len = w*4;
+            this.prev = new byte[len];
+            this.curr = new byte[len];
+            this.best = new byte[len+1];
+            this.trial = new byte[len+1];
+        }
+        void rows(int[] px, int off, int stride, int rows) throws IOException{
+            for(int r = 0; r < rows; r++){
+                int i = 0;
+                for(int p = off+r*stride, end = p+this.w; p < end; p++){
+                    int c = px[p];
+                    this.curr[i++] = (byte)(c >> 16);
+                    this.curr[i++] = (byte)(c >> 8);
+                    this.curr[i++] = (byte)c;
+                    this.curr[i++] = (byte)(c >>> 24);
+                }
+                this.filter();
+                this.data.write(this.best);
+                byte[] t = this.prev;
+                this.prev = this.curr;
+                this.curr = t;
+            }
+        }
+        void end() throws IOException{
+            this.data.finish();
+            this.data.flush();
+            this.defl.end();
+            chunk(this.out, "IEND", new byte[0], 0);
+            this.out.flush();
+        }
+        
+        /** Filter the current row into best (with its filter type first) */
+        void filter(){
+            byte[] cur = this.curr, up = this.prev;
+            int len = cur.length;
+            long min = Long.MAX_VALUE;
+            for(int type = 0; type < 5; type++){
+                byte[] out = this.trial;
+                out[0] = (byte)type;
+                long sum = 0;
+                for(int i = 0; i < len; i++){
+                    int a = (i >= 4) ? (cur[i-4] & 0xFF) : 0,
+                        b = up[i] & 0xFF,
+                        c = (i >= 4) ? (up[i-4] & 0xFF) : 0,
+                        x = cur[i] & 0xFF, pred;
+                    switch(type){
+                        case 0: pred = 0; break;
+                        case 1: pred = a; break;
+                        case 2: pred = b; break;
+                        case 3: pred = (a+b) >> 1; break;
+                        default: pred = paeth(a, b, c);
+                    }
+                    byte f = (byte)(x-pred);
+                    out[i+1] = f;
+                    sum += Math.abs(f);
+                }
+                if(sum < min){
+                    min = sum;
+                    this.trial = this.best;
+                    this.best = out;
+                }
+            }
+        }
+        /** The Paeth predictor */
+        static int paeth(int a, int b, int c){
+            int p = a+b-c,
+                pa = Math.abs(p-a), pb = Math.abs(p-b), pc = Math.abs(p-c);
+            if(pa <= pb && pa <= pc)return a;
+            return (pb <= pc) ? b : c;
+        }
+        
+        /** Write a single PNG chunk */
+        static void chunk(OutputStream out, String type, byte[] data, int len) throws IOException{
+            byte[] t = type.getBytes("US-ASCII");
+            CRC32 crc = new CRC32();
+            crc.update(t);
+            crc.update(data, 0, len);
+            DataOutputStream d = new DataOutputStream(out);
+            d.writeInt(len);
+            d.write(t);
+            d.write(data, 0, len);
+            d.writeInt((int)crc.getValue());
+        }
+        
+        /** Collects compressed data, writing it out in IDAT chunks */
+        static class IDAT extends OutputStream{
+            OutputStream out;
+            byte[] buff = new byte[CHUNK];
+            int len = 0;
+            
+            IDAT(OutputStream out){ this.out = out; }
+            
+            public void write(int b) throws IOException{
+                if(this.len == this.buff.length)this.flush();
+                this.buff[this.len++] = (byte)b;
+            }
+            public void write(byte[] b, int off, int n) throws IOException{
+                while(n > 0){
+                    if(this.len == this.buff.length)this.flush();
+                    int k = Math.min(n, this.buff.length-this.len);
+                    System.arraycopy(b, off, this.buff, this.len, k);
+                    this.len += k;
+                    off += k;
+                    n -= k;
+                }
+            }
+            public void flush() throws IOException{
+                if(this.len > 0)
+                    chunk(this.out, "IDAT", this.buff, this.len);
+                this.len = 0;
+            }
+        }
+    }
+}
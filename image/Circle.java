@@ -55,4 +55,8 @@ public class Circle extends Ellipse{
     public Circle(int radius, String mode, String color){
         super(2*radius, 2*radius, mode, color);
     }
+    /** Construct a circle Image of the given (double) radius, mode, and ARGB color */
+    public Circle(double radius, String mode, int color){
+        super(2*radius, 2*radius, mode, color);
+    }
 }
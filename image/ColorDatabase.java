@@ -267,12 +267,22 @@ public class ColorDatabase {
 
     /** Get the {@link java.awt.Color} represented by the given string */
     public static Color color(String s){
-        s = s.toLowerCase();
-        if(s.startsWith("#") && (s.length() == 7 || s.length() == 9))
-            return parseColor(s.substring(1));
-        if(colorTable.containsKey(s))
-            return colorTable.get(s);
-        throw new InvalidColorException("In valid color: \""+s+"\"");
+        int i = lookup(s);
+        if(i >= 0)
+            return namedColors[i];
+        return makeAwtColor(argb(s));
+    }
+    /** Get the ARGB integer (see {@link #makeColor(int)}) represented by the
+     *    given string.  Unlike {@link #color(String)}, no objects are created,
+     *    so this is a good choice for code that runs for every pixel. */
+    public static int argb(String s){
+        int i = lookup(s);
+        if(i >= 0)
+            return namedARGB[i];
+        int len = s.length();
+        if(len > 0 && s.charAt(0) == '#' && (len == 7 || len == 9))
+            return parseHex(s);
+        throw new InvalidColorException("In valid color: \""+s.toLowerCase()+"\"");
     }
     
     /** The Hexidecimal Digits as a String (in order) */
@@ -327,8 +337,7 @@ public class ColorDatabase {
     }
     /** Convert the given Color String into ARGB integer format. */
     public static int colorToARGB(String c){
-        Color awt = color(c);
-        return colorToARGB(awt.getAlpha(), awt.getRed(), awt.getGreen(), awt.getBlue());
+        return argb(c);
     }
     /** Convert the given Color intensities into ARGB integer format.
      *     RGB intensities must be between 0 and 1.0, inclusive.*/
@@ -376,32 +385,49 @@ public class ColorDatabase {
      *     in [0..255] where the Alpha/Red/Green/Blue/Alpha are in order from high to low
      *     order bytes. */
     public static Color makeAwtColor(int color){
-        return makeAwtColor((color>>ALPHA_SHIFT)&0xFF,
-                            (color>>RED_SHIFT)&0xFF,
-                            (color>>GREEN_SHIFT)&0xFF,
-                            (color>>BLUE_SHIFT)&0xFF);
+        int i = (color^(color>>>8)^(color>>>16)^(color>>>24))&(recent.length-1);
+        Color c = recent[i];
+        if(c == null || c.getRGB() != color)
+            recent[i] = c = new Color(color, true);
+        return c;
     }
+    /** Recently created Colors, indexed by a hash of their ARGB value.  Colors
+     *    are immutable, so sharing them between threads is safe. */
+    private static Color[] recent = new Color[256];
     
-    /** Parse a hex-Color from a 6 digit String (two each for Red, Green, Blue */
-    private static Color parseColor(String c){
-        String one = c.substring(0,2);
-        String two = c.substring(2,4);
-        String thr = c.substring(4,6);
-        
-        try{
-            if(c.length() == 6){
-                return new Color(Integer.parseInt(one, 16),
-                                 Integer.parseInt(two, 16),
-                                 Integer.parseInt(thr, 16));
-            }else{
-                return new Color(Integer.parseInt(two, 16),
-                                 Integer.parseInt(thr, 16),
-                                 Integer.parseInt(c.substring(6,8), 16),
-                                 Integer.parseInt(one, 16));
-            }
-        }catch(Exception e){
-            throw new InvalidColorException("In valid custom color: \"#"+c+"\"");
+    /** Parse a hex-Color from a String of 6 (Red, Green, Blue) or 8 (Alpha,
+     *    Red, Green, Blue) hexadecimal digits, following a '#' */
+    private static int parseHex(String c){
+        int len = c.length(), v = 0;
+        for(int i = 1; i < len; i++){
+            int d = Character.digit(c.charAt(i), 16);
+            if(d < 0)
+                throw new InvalidColorException("In valid custom color: \""+c.toLowerCase()+"\"");
+            v = (v<<4)|d;
         }
+        if(len == 7)
+            return (0xFF<<ALPHA_SHIFT)|v;
+        return v;
+    }
+    
+    /** Find the index of the given (case-insensitive) color name in the
+     *    named color tables, or -1 if it isn't there */
+    private static int lookup(String s){
+        int b = hash(s, 0)&(seeds.length-1);
+        int i = hash(s, seeds[b])&(names.length-1);
+        String n = names[i];
+        if(n != null && n.equalsIgnoreCase(s))
+            return i;
+        return -1;
+    }
+    /** Hash a (case-insensitive) String with the given seed */
+    private static int hash(String s, int seed){
+        int h = seed*0x9E3779B9^s.length();
+        for(int i = 0; i < s.length(); i++)
+            h = (h^Character.toLowerCase(s.charAt(i)))*0x01000193;
+        h ^= h>>>15;
+        h *= 0x2C1B3C6D;
+        return h^(h>>>12);
     }
     
     /** Thrown when an invalid color is used */
@@ -606,5 +632,52 @@ public class ColorDatabase {
         colorTable.put("dimgrey", new Color(0x69, 0x69, 0x69));
         colorTable.put("black", new Color(0x00, 0x00, 0x00));
     }
+    
+    /** Named colors, placed using a (precomputed) perfect hash of their
+     *    names, so looking up a name takes a single String comparison */
+    private static String[] names = new String[256];
+    private static int[] namedARGB = new int[names.length];
+    private static Color[] namedColors = new Color[names.length];
+    /** Per-bucket seeds for the second level of the perfect hash */
+    private static int[] seeds = new int[128];
+    static{
+        // Group the names into buckets, then place the largest buckets first,
+        //   searching for a seed that puts a bucket's names into empty slots
+        java.util.List<java.util.List<String>> buckets = new java.util.ArrayList<java.util.List<String>>();
+        for(int b = 0; b < seeds.length; b++)
+            buckets.add(new java.util.ArrayList<String>());
+        for(String n : colorTable.keySet())
+            buckets.get(hash(n, 0)&(seeds.length-1)).add(n);
+        Integer[] order = new Integer[seeds.length];
+        for(int b = 0; b < order.length; b++)
+            order[b] = b;
+        final java.util.List<java.util.List<String>> bs = buckets;
+        java.util.Arrays.sort(order, new java.util.Comparator<Integer>(){
+            public int compare(Integer a, Integer b){ return bs.get(b).size()-bs.get(a).size(); }
+        });
+        for(int b : order){
+            java.util.List<String> bucket = buckets.get(b);
+            for(int seed = 1; !bucket.isEmpty(); seed++){
+                int[] slots = new int[bucket.size()];
+                boolean fits = true;
+                for(int j = 0; j < slots.length && fits; j++){
+                    slots[j] = hash(bucket.get(j), seed)&(names.length-1);
+                    fits = names[slots[j]] == null;
+                    for(int k = 0; k < j && fits; k++)
+                        fits = slots[k] != slots[j];
+                }
+                if(fits){
+                    seeds[b] = seed;
+                    for(int j = 0; j < slots.length; j++){
+                        String n = bucket.get(j);
+                        names[slots[j]] = n;
+                        namedColors[slots[j]] = colorTable.get(n);
+                        namedARGB[slots[j]] = colorTable.get(n).getRGB();
+                    }
+                    break;
+                }
+            }
+        }
+    }
 }
 
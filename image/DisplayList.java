@@ -0,0 +1,228 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/DisplayList.java                                      *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package image;
+
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/** A flattened version of a <code>Scene</code>/<code>Overlay</code> tree.
+ *    Composite images ({@link Scene}s with placed images, {@link Overlay}s and
+ *    {@link OverlayXY}s) are compiled into a flat array of the images they
+ *    contain, together with each image's location relative to the root.
+ *    Painting is then a single loop rather than one (recursive) call per
+ *    placed image, so scenes with many thousands of images can be drawn
+ *    without running out of stack. */
+public final class DisplayList{
+    /** The images to be drawn, in order from bottom to top */
+    private final Image[] imgs;
+    /** Locations of each image (pinhole), relative to the root */
+    private final int[] xs, ys;
+    /** Bounds of each image, relative to the root */
+    private final int[] minXs, minYs, maxXs, maxYs;
+    /** Number of entries used */
+    private final int size;
+    
+    /** Extra space around each image's bounds, since outlines and
+     *    anti-aliasing may touch pixels just outside its width/height */
+    static int MARGIN = 2;
+    
+    private DisplayList(Builder b){
+        this.imgs = b.imgs;
+        this.xs = b.xs;
+        this.ys = b.ys;
+        this.minXs = b.minXs;
+        this.minYs = b.minYs;
+        this.maxXs = b.maxXs;
+        this.maxYs = b.maxYs;
+        this.size = b.size;
+    }
+    
+    /** Return the number of (non-composite) images in this DisplayList */
+    public int size(){ return this.size; }
+    /** Return the i<sup>th</sup> image of this DisplayList (from the bottom) */
+    public Image image(int i){ return this.imgs[i]; }
+    /** Return the X location of the i<sup>th</sup> image relative to the root */
+    public int x(int i){ return this.xs[i]; }
+    /** Return the Y location of the i<sup>th</sup> image relative to the root */
+    public int y(int i){ return this.ys[i]; }
+    
+    /** Draw all the images of this DisplayList into a Graphics, with the
+     *    root located at (x,y).  Images whose bounds fall completely outside
+     *    the current clip of the Graphics are skipped (culled).  Scenes are
+     *    always painted, since an <code>EmptyScene</code> sets the clip for
+     *    the images placed on top of it.
+     *  
+     *  @return The number of images that were culled
+     */
+    public int paint(Graphics g, int x, int y){
+        return this.paint(g, x, y, null);
+    }
+    /** Draw the images of this DisplayList into a Graphics, with the root
+     *    located at (x,y), restricted to the given area (when non-null).
+     *    The area is re-applied after each Scene is drawn, so only pixels
+     *    inside it are touched.
+     *  
+     *  @return The number of images that were culled
+     */
+    public int paint(Graphics g, int x, int y, Rectangle area){
+        if(area != null)
+            g.clipRect(area.x, area.y, area.width, area.height);
+        Rectangle clip = g.getClipBounds();
+        int culled = 0;
+        for(int i = 0; i < this.size; i++){
+            Image img = this.imgs[i];
+            if(img instanceof Scene){
+                img.paint(g, x+this.xs[i], y+this.ys[i]);
+                if(area != null)
+                    g.clipRect(area.x, area.y, area.width, area.height);
+                clip = g.getClipBounds();
+            }else if(clip != null &&
+                     (x+this.maxXs[i] < clip.x || x+this.minXs[i] >= clip.x+clip.width ||
+                      y+this.maxYs[i] < clip.y || y+this.minYs[i] >= clip.y+clip.height)){
+                culled++;
+            }else{
+                img.paint(g, x+this.xs[i], y+this.ys[i]);
+            }
+        }
+        return culled;
+    }
+    
+    /** Compile the given Image into a DisplayList.  Only the library's own
+     *    composite classes are flattened; other images (including subclasses
+     *    that may override <tt>paint</tt>) are kept as single entries. */
+    public static DisplayList compile(Image root){
+        Builder b = new Builder();
+        Scene prev = null;
+        if(root.getClass() == Scene.Placed.class)
+            prev = ((Scene.Placed)root).next;
+        b.push(root, 0, 0);
+        while(b.top > 0){
+            b.top--;
+            Image img = b.stack[b.top];
+            int x = b.sx[b.top], y = b.sy[b.top];
+            b.stack[b.top] = null;
+            
+            Class<?> c = img.getClass();
+            if(c == Scene.Placed.class){
+                Scene.Placed p = (Scene.Placed)img;
+                DisplayList done = p.compiled;
+                if(done != null && p != root){
+                    // Reuse previously compiled (sub)scenes
+                    b.addAll(done, x, y);
+                    // The old Scene has been superseded by the new root, so
+                    //   we release its copy rather than keep both around
+                    if(p == prev)p.compiled = null;
+                }else{
+                    // Next is drawn first, so it goes on top of the stack
+                    b.push(p.img, x+Image.round(p.x), y+Image.round(p.y));
+                    b.push(p.next, x, y);
+                }
+            }else if((c == Overlay.class || c == OverlayXY.class) &&
+                     ((Overlay)img).compiled != null && img != root){
+                b.addAll(((Overlay)img).compiled, x, y);
+            }else if(c == Overlay.class){
+                // Bottom layer is drawn first, so it goes on top of the stack
+                Image[] layers = ((Overlay)img).layers;
+                for(int i = 0; i < layers.length; i++)
+                    b.push(layers[i], x, y);
+            }else if(c == OverlayXY.class){
+                OverlayXY o = (OverlayXY)img;
+                b.push(o.top, x+Image.round(o.tx), y+Image.round(o.ty));
+                b.push(o.bot, x+Image.round(o.tx+o.dx+o.bot.pinholeX-o.top.pinholeX),
+                              y+Image.round(o.ty+o.dy+o.bot.pinholeY-o.top.pinholeY));
+            }else{
+                b.add(img, x, y);
+            }
+        }
+        return new DisplayList(b);
+    }
+    
+    /** Growable arrays for the work-list and the result of compiling */
+    private static class Builder{
+        Image[] stack = new Image[16];
+        int[] sx = new int[16], sy = new int[16];
+        int top = 0;
+        
+        Image[] imgs = new Image[16];
+        int[] xs = new int[16], ys = new int[16];
+        int[] minXs = new int[16], minYs = new int[16],
+              maxXs = new int[16], maxYs = new int[16];
+        int size = 0;
+        
+        /** Push an Image (to be compiled) on the work-list */
+        void push(Image img, int x, int y){
+            if(this.top == this.stack.length){
+                int n = this.top*2;
+                this.stack = Arrays.copyOf(this.stack, n);
+                this.sx = Arrays.copyOf(this.sx, n);
+                this.sy = Arrays.copyOf(this.sy, n);
+            }
+            this.stack[this.top] = img;
+            this.sx[this.top] = x;
+            this.sy[this.top] = y;
+            this.top++;
+        }
+        /** Make sure there is room for n more entries in the result */
+        void ensure(int n){
+            if(this.size+n > this.imgs.length){
+                int len = Math.max(this.imgs.length*2, this.size+n);
+                this.imgs = Arrays.copyOf(this.imgs, len);
+                this.xs = Arrays.copyOf(this.xs, len);
+                this.ys = Arrays.copyOf(this.ys, len);
+                this.minXs = Arrays.copyOf(this.minXs, len);
+                this.minYs = Arrays.copyOf(this.minYs, len);
+                this.maxXs = Arrays.copyOf(this.maxXs, len);
+                this.maxYs = Arrays.copyOf(this.maxYs, len);
+            }
+        }
+        /** Add a single (non-composite) image to the result */
+        void add(Image img, int x, int y){
+            this.ensure(1);
+            this.imgs[this.size] = img;
+            this.xs[this.size] = x;
+            this.ys[this.size] = y;
+            this.minXs[this.size] = x-Image.ceil(img.leftOfPin())-MARGIN;
+            this.minYs[this.size] = y-Image.ceil(img.upOfPin())-MARGIN;
+            this.maxXs[this.size] = x+Image.ceil(img.rightOfPin())+MARGIN;
+            this.maxYs[this.size] = y+Image.ceil(img.downOfPin())+MARGIN;
+            this.size++;
+        }
+        /** Add all the entries of an already compiled list, offset by (x,y) */
+        void addAll(DisplayList dl, int x, int y){
+            this.ensure(dl.size);
+            System.arraycopy(dl.imgs, 0, this.imgs, this.size, dl.size);
+            for(int i = 0; i < dl.size; i++){
+                int j = this.size+i;
+                this.xs[j] = dl.xs[i]+x;
+                this.ys[j] = dl.ys[i]+y;
+                this.minXs[j] = dl.minXs[i]+x;
+                this.minYs[j] = dl.minYs[i]+y;
+                this.maxXs[j] = dl.maxXs[i]+x;
+                this.maxYs[j] = dl.maxYs[i]+y;
+            }
+            this.size += dl.size;
+        }
+    }
+}
@@ -60,6 +60,10 @@ public class Ellipse extends Rectangle{
     public Ellipse(int width, int height, String mode, String color){
         super(width,height,mode,color);
     }
+    /** Create a Ellipse Image with (double) width and height, mode and ARGB color */
+    public Ellipse(double width, double height, String mode, int color){
+        super(width,height,mode,color);
+    }
     /** Paint this Scene into the given graphics */
     public void paint(Graphics g, int x, int y){
         Graphics2D g2 = (Graphics2D)g;
@@ -70,6 +70,13 @@ public class EmptyScene extends Scene{
         this.color = Image.color(color);
         this.clipped = false;
     }
+    /** Construct an EmptyScene of (Width x Height) with the given ARGB color */
+    public EmptyScene(int width, int height, int color){
+        this.width = width;
+        this.height = height;
+        this.color = Image.color(color);
+        this.clipped = false;
+    }
     /** Paint this Scene into the given graphics */
     public void paint(Graphics g, int x, int y){
         g.setColor(this.color);
@@ -91,5 +98,15 @@ public class EmptyScene extends Scene{
     
     /** Return the Width of this Scene/Image */
     public int height(){ return this.height; }
+    
+    /** Same size, color, and clipping */
+    protected boolean same(Image i){
+        EmptyScene e = (EmptyScene)i;
+        return this.width == e.width && this.height == e.height &&
+               this.clipped == e.clipped && this.color.equals(e.color);
+    }
+    protected int hash(){
+        return ((this.width*31+this.height)*31+(this.clipped ? 1 : 0))*31+this.color.hashCode();
+    }
 }
 
@@ -0,0 +1,41 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/Flip.java                                             *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package image;
+
+/** Represents an Image flipped horizontally (left to right) or vertically
+ *    (top to bottom) around its pinhole.  The flip is applied when the
+ *    Image is drawn, see {@link Transformed}. */
+public class Flip extends Scale{
+    protected boolean horizontal;
+    
+    /** Construct a flipped version of the given Image, horizontally
+     *    (left to right) if <tt>horizontal</tt> is true, otherwise
+     *    vertically (top to bottom) */
+    public Flip(Image img, boolean horizontal){
+        super(img, horizontal?-1.0:1.0, horizontal?1.0:-1.0);
+        this.horizontal = horizontal;
+    }
+    /** Is this Image flipped horizontally (or vertically)? */
+    public boolean isHorizontal(){ return this.horizontal; }
+}
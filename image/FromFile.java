@@ -23,13 +23,9 @@
 
 package image;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.util.Hashtable;
-
 /** Represents an Image from a file.  The given file name is used
- *    to load the image.  Resolved path names are cached, so images
- *    are only loaded once. */
+ *    to load the image.  Decoded images are kept in the shared
+ *    {@link ImageCache}, so images are (usually) only loaded once. */
 public class FromFile extends RasterImage{
     /** Default constructor... must call init after using */
     protected FromFile(){
@@ -39,21 +35,11 @@ public class FromFile extends RasterImage{
     public FromFile(String f){
         super(1,1);
         try{
-            java.io.File file = new java.io.File(f);
-            String abs = file.getCanonicalPath();
-            if(loaded.containsKey(abs)){
-                this.img = loaded.get(abs);
-            }else{
-                this.img = ImageIO.read(file);
-                loaded.put(abs, this.img);
-            }
-            this.init(this.img);
+            this.init(ImageCache.get(ImageCache.fileKey(f), ImageCache.fileLoader(f)));
         }catch(java.io.IOException e){
             throw new RuntimeException("Image File: \""+f+"\" Not Found!");
         }
     }
-    /** Store File Images, to avoid multiple loads */
-    protected static Hashtable<String,BufferedImage> loaded = new Hashtable<String,BufferedImage>();
 }
 
 
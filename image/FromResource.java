@@ -24,7 +24,7 @@
 package image;
 
 import java.awt.image.BufferedImage;
-import java.util.Hashtable;
+import java.util.concurrent.Callable;
 import javax.imageio.ImageIO;
 
 /** Represents an image from a JAR resource (an Image file within
@@ -37,23 +37,19 @@ public class FromResource extends FromFile{
     /** Create an Image from the given file name within a JAR. */
     public FromResource(String f){
         try{
-            if(loaded.containsKey(f)){
-                this.img = loaded.get(f);
-            }else{
-                this.img = ImageIO.read(getClass().getResourceAsStream(f));
-                loaded.put(f, this.img);
-            }
-            this.init(this.img);
+            final Class<?> c = getClass();
+            final String res = f;
+            this.init(ImageCache.get(ImageCache.resourceKey(f), new Callable<BufferedImage>(){
+                public BufferedImage call() throws java.io.IOException{
+                    return ImageIO.read(c.getResourceAsStream(res));
+                }
+            }));
         }catch(java.io.IOException e){
             throw new RuntimeException("Error Loading JAR Image resource: \""+f+"\"");
         }catch(IllegalArgumentException e){
             throw new RuntimeException("JAR Image resource: \""+f+"\" Not Found!");
         }
     }
-    /** Store File/Resource Images, to avoid multiple loads, shadows
-     *    <tt>FromFile.loaded</tt> so that resources and files come
-     *    from different name-spaces. */
-    protected static Hashtable<String,BufferedImage> loaded = new Hashtable<String,BufferedImage>();
 }
 
 
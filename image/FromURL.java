@@ -23,33 +23,18 @@
 
 package image;
 
-import java.awt.image.BufferedImage;
-import java.util.Hashtable;
-import javax.imageio.ImageIO;
-import java.net.URL;
-
 /** Represents an image from a URL.  The image is loaded on when created. */
 public class FromURL extends FromFile{
     
     /** Create an Image from the given URL address */
     public FromURL(String url){
         try{
-            if(loaded.containsKey(url)){
-                this.img = loaded.get(url);
-            }else{
-                this.img = ImageIO.read(new URL(url));
-                loaded.put(url, this.img);
-            }
-            this.init(this.img);
+            this.init(ImageCache.get(ImageCache.urlKey(url), ImageCache.urlLoader(url)));
         }catch(java.io.IOException e){
             throw new RuntimeException("Error Loading URL Image: \""+url+
                     "\"\n"+e.getMessage());
         }
     }
-    /** Store URL Images, to avoid multiple loads, shadows
-     *    <tt>FromFile.loaded</tt> so that URLs and files come
-     *    from different name-spaces. */
-    protected static Hashtable<String,BufferedImage> loaded = new Hashtable<String,BufferedImage>();
 }
 
 
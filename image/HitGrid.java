@@ -0,0 +1,137 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/HitGrid.java                                          *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package image;
+
+/** A uniform grid over the images placed on a Scene, used to find the
+ *    topmost image under a point (see {@link Scene#hitTest(double, double)})
+ *    without checking every image.  Each cell lists the images whose bounds
+ *    overlap it, from the top of the Scene down.  Scenes never change, so a
+ *    grid is built once (when first needed) and kept with its Scene. */
+final class HitGrid{
+    /** Smallest width/height of a cell */
+    static final int MIN_CELL = 16;
+    
+    /** The placed images, topmost first, with their tags */
+    private final Image[] imgs;
+    private final Object[] tags;
+    /** Bounds of each image, relative to the Scene */
+    private final double[] minXs, minYs, maxXs, maxYs;
+    /** Size of the Scene and of the cells */
+    private final int width, height, cell, cols, rows;
+    /** Images of cell c are items[start[c]] to items[start[c+1]-1] */
+    private final int[] start, items;
+    
+    /** Build the grid for the images placed on the given Scene */
+    HitGrid(Scene.Placed scn){
+        int n = scn.depth;
+        this.imgs = new Image[n];
+        this.tags = new Object[n];
+        this.minXs = new double[n];
+        this.minYs = new double[n];
+        this.maxXs = new double[n];
+        this.maxYs = new double[n];
+        Scene s = scn;
+        for(int i = 0; i < n; i++){
+            Scene.Placed p = (Scene.Placed)s;
+            Image img = p.img;
+            // Images are drawn with their pinhole at the rounded location
+            int x = Image.round(p.x), y = Image.round(p.y);
+            this.imgs[i] = img;
+            this.tags[i] = p.tag;
+            this.minXs[i] = x-img.leftOfPin();
+            this.minYs[i] = y-img.upOfPin();
+            this.maxXs[i] = x+img.rightOfPin();
+            this.maxYs[i] = y+img.downOfPin();
+            s = p.next;
+        }
+        
+        this.width = Math.max(scn.width(), 1);
+        this.height = Math.max(scn.height(), 1);
+        // About one image per cell
+        this.cell = Math.max(MIN_CELL, (int)Math.ceil(Math.sqrt((double)this.width*this.height/Math.max(n, 1))));
+        this.cols = (this.width+this.cell-1)/this.cell;
+        this.rows = (this.height+this.cell-1)/this.cell;
+        
+        // Count the images of each cell, then fill them in
+        int[] start = new int[this.cols*this.rows+1];
+        for(int i = 0; i < n; i++){
+            if(!this.visible(i))continue;
+            for(int r = this.row(this.minYs[i]); r <= this.row(this.maxYs[i]); r++)
+                for(int c = this.col(this.minXs[i]); c <= this.col(this.maxXs[i]); c++)
+                    start[r*this.cols+c+1]++;
+        }
+        for(int c = 0; c < this.cols*this.rows; c++)
+            start[c+1] += start[c];
+        int[] fill = new int[this.cols*this.rows];
+        this.items = new int[start[this.cols*this.rows]];
+        for(int i = 0; i < n; i++){
+            if(!this.visible(i))continue;
+            for(int r = this.row(this.minYs[i]); r <= this.row(this.maxYs[i]); r++)
+                for(int c = this.col(this.minXs[i]); c <= this.col(this.maxXs[i]); c++){
+                    int k = r*this.cols+c;
+                    this.items[start[k]+fill[k]++] = i;
+                }
+        }
+        this.start = start;
+    }
+    /** Does the i<sup>th</sup> image overlap the Scene? */
+    private boolean visible(int i){
+        return (this.maxXs[i] > 0 && this.minXs[i] < this.width &&
+                this.maxYs[i] > 0 && this.minYs[i] < this.height &&
+                this.maxXs[i] > this.minXs[i] && this.maxYs[i] > this.minYs[i]);
+    }
+    private int col(double x){
+        return Math.max(0, Math.min((int)Math.floor(x/this.cell), this.cols-1));
+    }
+    private int row(double y){
+        return Math.max(0, Math.min((int)Math.floor(y/this.cell), this.rows-1));
+    }
+    
+    /** Return the index (from the top) of the topmost image (or the topmost
+     *    image with a tag) whose bounds contain (x,y), or -1 */
+    private int find(double x, double y, boolean tagged){
+        if(!(x >= 0 && x < this.width && y >= 0 && y < this.height))
+            return -1;
+        int k = this.row(y)*this.cols+this.col(x);
+        for(int j = this.start[k]; j < this.start[k+1]; j++){
+            int i = this.items[j];
+            if(x >= this.minXs[i] && x < this.maxXs[i] &&
+               y >= this.minYs[i] && y < this.maxYs[i] &&
+               (!tagged || this.tags[i] != null))
+                return i;
+        }
+        return -1;
+    }
+    /** Return the topmost image under (x,y), or null */
+    Image image(double x, double y){
+        int i = this.find(x, y, false);
+        return (i < 0) ? null : this.imgs[i];
+    }
+    /** Return the tag of the topmost tagged image under (x,y), or null */
+    Object tag(double x, double y){
+        int i = this.find(x, y, true);
+        return (i < 0) ? null : this.tags[i];
+    }
+}
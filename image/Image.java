@@ -60,12 +60,69 @@ public abstract class Image {
     protected double upOfPin(){ return this.pinholeY; }
     protected double downOfPin(){ return height()-this.pinholeY; }
     
+    /** Cached structural hash code, 0 until it's calculated */
+    private int hash;
+    
+    /** Images are equal when they are the same kind of Image, with the same
+     *    pinhole, and the same contents (see {@link #same(Image)}), i.e.,
+     *    when they would be drawn the same.  Hash codes are compared first,
+     *    and composite Images calculate theirs when they are constructed,
+     *    so different Images are usually told apart immediately. */
+    public boolean equals(Object o){
+        if(o == this)return true;
+        return (o instanceof Image) && shallow(this, (Image)o) && this.same((Image)o);
+    }
+    /** Are the two Images the same class, with the same hash code and
+     *    pinhole?  Used by composites to compare long chains of Images
+     *    without recursion. */
+    static boolean shallow(Image a, Image b){
+        return a.getClass() == b.getClass() &&
+               a.hashCode() == b.hashCode() &&
+               same(a.pinholeX, b.pinholeX) &&
+               same(a.pinholeY, b.pinholeY);
+    }
+    /** Return the (cached) structural hash code of this Image */
+    public int hashCode(){
+        int h = this.hash;
+        if(h == 0){
+            h = this.hash()*31+hash(this.pinholeX);
+            h = h*31+hash(this.pinholeY);
+            if(h == 0)h = 1;
+            this.hash = h;
+        }
+        return h;
+    }
+    /** Compare the contents of this Image to another of the same class (and
+     *    pinhole).  By default Images are only the same as themselves, so
+     *    subclasses should override this with {@link #hash()}. */
+    protected boolean same(Image i){ return i == this; }
+    /** Calculate the hash code of the contents of this Image, matching
+     *    {@link #same(Image)}.  It is only called once, by {@link #hashCode()} */
+    protected int hash(){ return System.identityHashCode(this); }
+    /** Can this Image change how it looks while staying the same object,
+     *    e.g., a {@link Widget}?  Composite images never take such a part
+     *    to be the same as before, see {@link #samePart(Image, Image)} */
+    boolean live(){ return false; }
+    /** Are the given parts of two composite images the same? */
+    static boolean samePart(Image a, Image b){
+        return !a.live() && a.equals(b);
+    }
+    /** Hash code of a double */
+    protected static int hash(double d){
+        long l = Double.doubleToLongBits(d);
+        return (int)(l^(l >>> 32));
+    }
+    /** Are the two doubles the same? */
+    protected static boolean same(double a, double b){
+        return Double.compare(a, b) == 0;
+    }
+    
     /** Overlay the given Image over this Image */
     public Image overlay(Image top)
     { return new Overlay(top,this); }
     /** Overlay the given Images over this Image */
     public Image overlay(Image top, Image next, Image ... imgs){
-        return new Overlay(new Overlay(top, make(next, imgs, 0)), this);
+        return new Overlay(new Overlay(top, next, imgs), this);
     }
     /** Overlay the given Image over this Image offset (x,y) */
     public Image overlayxy(Image top, int x, int y)
@@ -87,13 +144,6 @@ public abstract class Image {
     public Image overlayxy(Posn p, Image top)
     { return overlayxy(top,p.x,p.y); }
         
-    /** Make a layered Image with top t and bottoms of imgs[i..] */
-    private static Image make(Image t, Image[] imgs, int i){
-        if(i == imgs.length)
-            return t;
-        return new Overlay(t, make(imgs[i], imgs, i+1));    
-    }
-    
     
     /** Draw this image into a Graphics */
     public abstract void paint(Graphics g, int x, int y);
@@ -111,13 +161,13 @@ public abstract class Image {
         return new White(ceil(this.width()+2), ceil(this.height()+2)).placeImage(this, this.pinholeX+1, this.pinholeY+1);
     }
     /** Represents a truly empty scene... */
-    private static class MT extends EmptyScene{
+    static class MT extends EmptyScene{
         MT(int w, int h){ super(w,h); }
         /** Leave the graphics empty (translucent) */
         public void paint(Graphics g, int x, int y){}
     }
     /** Represents a truly empty scene... */
-    private static class White extends EmptyScene{
+    static class White extends EmptyScene{
         White(int w, int h){ super(w,h); }
         /** Fill with a white background */
         public void paint(Graphics g, int x, int y){
@@ -136,8 +186,8 @@ public abstract class Image {
     
     /** Convert the mode string into an int representing Outline/Solid */
     protected static int mode(String s){
-        if(s.toLowerCase().equals("outline")) return OUTLINE;
-        if(s.toLowerCase().equals("solid")) return SOLID;
+        if(s.equalsIgnoreCase("outline")) return OUTLINE;
+        if(s.equalsIgnoreCase("solid")) return SOLID;
         throw new RuntimeException("Mode expected \"solid\" or \"outline\", got: \""+s+"\"");
     }
 
@@ -154,10 +204,28 @@ public abstract class Image {
     protected static Color color(String s){
         return ColorDatabase.color(s);
     }
+    /** Get the java.awt.Color represented by the given ARGB integer */
+    protected static Color color(int argb){
+        return ColorDatabase.makeAwtColor(argb);
+    }
     
-    /** Return a raster (buffered) version of this Image */
+    /** Return a raster (buffered) version of this Image.  When the
+     *    {@link RasterCache} is enabled, the raster may be shared with
+     *    earlier calls. */
     public RasterImage rasterize(){
+        if(!RasterCache.isEnabled())
+            return this.render();
+        RasterImage r = RasterCache.lookup(this, RasterCache.RASTER, 0);
+        if(r != null)return r;
+        return RasterCache.store(this, RasterCache.RASTER, 0, this.render());
+    }
+    /** Draw this Image into a new RasterImage */
+    RasterImage render(){
         RasterImage img = new RasterImage(ceil(this.width()), ceil(this.height()));
+        if(SoftRenderer.isEnabled()){
+            SoftRenderer.paint(this, img, round(this.pinholeX), round(this.pinholeY));
+            return img;
+        }
         Graphics2D g = img.getGraphics();
         
         this.paint(g, round(this.pinholeX), round(this.pinholeY));
@@ -171,11 +239,19 @@ public abstract class Image {
      *  <p>
      *    Any Image may be rotated several times, though for efficiency
      *    (when possible) the rotated image should be saved, rather than
-     *    recreated.
+     *    recreated, or see {@link #rotated(double)}.
      *  </p>
      */
     public RasterImage rotate(double ang){
         ang = (ang + 360.0) % 360.0;
+        if(!RasterCache.isEnabled())
+            return this.rotateRaster(ang);
+        RasterImage r = RasterCache.lookup(this, RasterCache.ROTATE, ang);
+        if(r != null)return r;
+        return RasterCache.store(this, RasterCache.ROTATE, ang, this.rotateRaster(ang));
+    }
+    /** Rotate this image by the given (normalized) angle in degrees */
+    private RasterImage rotateRaster(double ang){
         int max = round(Math.max(Math.max(phDist(0,0),
                                           phDist(0,this.height())),
                                  Math.max(phDist(this.width(),0),
@@ -183,30 +259,61 @@ public abstract class Image {
         return this.transform(AffineTransform.getRotateInstance(Math.toRadians(-ang), max, max),
                 max*2, max*2, max, max);
     }
-    /** Return a version of this Image scaled by the given int multiplier.
-    private RasterImage scale(int s){
-        return this.scale((double)s);
+    /** Return a rotated version of this image by the given angle in degrees.
+     *    Unlike {@link #rotate(double)}, the rotation is applied when the
+     *    image is drawn (see {@link Rotate}), so no pixels are copied until
+     *    the result is placed in a Scene, or explicitly {@link #rasterize()
+     *    rasterized}. */
+    public Image rotated(double ang){
+        return new Rotate(this, ang);
     }
-    /** Return a version of this Image scaled by the given int X and Y multipliers.
-    private RasterImage scale(int sx, int sy){
-        return this.scale((double)sx, sy);
+    /** Return a version of this image rotated by (approximately) the given
+     *    angle in degrees, rounded to one of the given number of steps around
+     *    the circle.  Rotations are drawn once into a shared cache (see
+     *    {@link RotationCache}), so repeatedly rotating the same Image costs a
+     *    single <tt>drawImage</tt>. */
+    public Image rotateCached(double ang, int steps){
+        return RotationCache.of(this, steps).get(ang);
     }
-    /** Return a version of this Image scaled by the given double multiplier.
-    private RasterImage scale(double s){
+    /** Return a version of this Image scaled by the given multiplier. */
+    public Image scale(double s){
         return this.scale(s, s);
-    }*/
-    /** Return a version of this Image scaled by the given double X and Y multipliers. */
-    private RasterImage scale(double sx, double sy){
+    }
+    /** Return a version of this Image scaled by the given X and Y multipliers. */
+    public Image scale(double sx, double sy){
+        return new Scale(this, sx, sy);
+    }
+    /** Return a version of this Image scaled by the given X and Y
+     *    multipliers, as a raster */
+    private RasterImage scaleRaster(double sx, double sy){
         return this.transform(AffineTransform.getScaleInstance(sx, sy),
                 Math.abs(sx*this.width()), Math.abs(sy*this.height()), this.width()/2.0/sx, this.height()/2.0/sy);
     }
     /** Return a version of this Image flipped horizontally (left to right). */
     public RasterImage flipHorizontal(){
-        return scale(-1.0, 1.0);
+        if(!RasterCache.isEnabled())
+            return scaleRaster(-1.0, 1.0);
+        RasterImage r = RasterCache.lookup(this, RasterCache.FLIP_H, 0);
+        if(r != null)return r;
+        return RasterCache.store(this, RasterCache.FLIP_H, 0, scaleRaster(-1.0, 1.0));
     }
     /** Return a version of this Image flipped vertically (top to bottom). */
     public RasterImage flipVertical(){
-        return scale(1.0, -1.0);
+        if(!RasterCache.isEnabled())
+            return scaleRaster(1.0, -1.0);
+        RasterImage r = RasterCache.lookup(this, RasterCache.FLIP_V, 0);
+        if(r != null)return r;
+        return RasterCache.store(this, RasterCache.FLIP_V, 0, scaleRaster(1.0, -1.0));
+    }
+    /** Return a version of this Image flipped horizontally (left to right),
+     *    applied when it is drawn (see {@link Flip}) */
+    public Image flippedHorizontal(){
+        return new Flip(this, true);
+    }
+    /** Return a version of this Image flipped vertically (top to bottom),
+     *    applied when it is drawn (see {@link Flip}) */
+    public Image flippedVertical(){
+        return new Flip(this, false);
     }
     /** Return a transformed version of this Image */
     protected RasterImage transform(AffineTransform newtform, double nw, double nh, double cx, double cy){
@@ -0,0 +1,273 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/ImageCache.java                                       *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/** The cache of decoded images shared by {@link FromFile},
+ *    {@link FromURL}, and {@link FromResource}, so each file is only
+ *    loaded once.  Entries are keyed by their (absolute) path, URL, or
+ *    resource name, and are evicted in least-recently used order once the
+ *    total size of their pixels goes over the limit (see
+ *    {@link #setMaxBytes(long)}).  Images that are still in use keep their
+ *    pixels, an evicted image is simply loaded again the next time it is
+ *    asked for.
+ *  <p>
+ *    Files can be decoded ahead of time on a background pool with
+ *    {@link #preload(String...)}.  An image that is already being loaded
+ *    (e.g., by a preload) is waited for rather than decoded twice.
+ *  </p>
+ */
+public final class ImageCache{
+    private ImageCache(){}
+    
+    /** Maximum (approximate) size of the cached images */
+    private static long maxBytes = 64L*1024*1024;
+    /** Current (approximate) size of the cached images */
+    private static long bytes = 0;
+    private static long hits = 0, misses = 0, evictions = 0;
+    
+    /** Entries in least-recently used order */
+    private static LinkedHashMap<String, Entry> cache = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+    /** Images currently being loaded */
+    private static ConcurrentHashMap<String, Load> loading = new ConcurrentHashMap<String, Load>();
+    /** Background loading threads, created when first needed */
+    private static ExecutorService pool;
+    
+    /** Set the maximum number of bytes of pixel data kept in the cache */
+    public static synchronized void setMaxBytes(long max){
+        if(max < 0)
+            throw new IllegalArgumentException("Cache size must be non-negative, got: "+max);
+        maxBytes = max;
+        evict();
+    }
+    /** Return the maximum number of bytes of pixel data kept in the cache */
+    public static synchronized long getMaxBytes(){ return maxBytes; }
+    /** Return the number of bytes of pixel data currently in the cache */
+    public static synchronized long bytes(){ return bytes; }
+    /** Return the number of images currently in the cache */
+    public static synchronized int size(){ return cache.size(); }
+    
+    /** Number of requests for an image that was already loaded (or loading) */
+    public static synchronized long hits(){ return hits; }
+    /** Number of requests that had to load the image */
+    public static synchronized long misses(){ return misses; }
+    /** Number of images removed to stay within the size limit */
+    public static synchronized long evictions(){ return evictions; }
+    /** Reset the hit/miss/eviction counters */
+    public static synchronized void resetStats(){
+        hits = misses = evictions = 0;
+    }
+    /** Remove all the images from the cache */
+    public static synchronized void clear(){
+        cache.clear();
+        bytes = 0;
+    }
+    
+    /** Start loading the given image files in the background, so later
+     *    {@link FromFile}s of the same files do not have to wait (as long).
+     *    The returned Futures can be used to wait for (or check) each load. */
+    public static List<Future<?>> preload(String ... paths){
+        List<Future<?>> res = new ArrayList<Future<?>>(paths.length);
+        for(String p : paths)
+            res.add(submit(fileKey(p), fileLoader(p)));
+        return res;
+    }
+    /** Start loading the given image URLs in the background, see
+     *    {@link #preload(String...)} */
+    public static List<Future<?>> preloadURLs(String ... urls){
+        List<Future<?>> res = new ArrayList<Future<?>>(urls.length);
+        for(String u : urls)
+            res.add(submit(urlKey(u), urlLoader(u)));
+        return res;
+    }
+    
+    /** Cache key of an image file, its absolute (normalized) path.  Unlike
+     *    a canonical path, this does not need to touch the file system. */
+    static String fileKey(String f){
+        try{
+            return "file:"+java.nio.file.Paths.get(f).toAbsolutePath().normalize();
+        }catch(java.nio.file.InvalidPathException e){
+            return "file:"+new java.io.File(f).getAbsolutePath();
+        }
+    }
+    /** Cache key of an image URL */
+    static String urlKey(String url){ return "url:"+url; }
+    /** Cache key of an image resource */
+    static String resourceKey(String res){ return "res:"+res; }
+    
+    /** Decodes the given image file */
+    static Callable<BufferedImage> fileLoader(final String f){
+        return new Callable<BufferedImage>(){
+            public BufferedImage call() throws IOException{
+                return javax.imageio.ImageIO.read(new java.io.File(f));
+            }
+        };
+    }
+    /** Decodes the image at the given URL */
+    static Callable<BufferedImage> urlLoader(final String url){
+        return new Callable<BufferedImage>(){
+            public BufferedImage call() throws IOException{
+                return javax.imageio.ImageIO.read(new java.net.URL(url));
+            }
+        };
+    }
+    
+    /** Return the image with the given key, using the loader (on this
+     *    thread) if it is not already cached or being loaded */
+    static BufferedImage get(String key, Callable<BufferedImage> loader) throws IOException{
+        BufferedImage img = lookup(key);
+        if(img != null)return img;
+        Load l = new Load(key, loader), prev = loading.putIfAbsent(key, l);
+        if(prev == null){
+            l.run();
+        }else{
+            // Wait for the load that's already started, or run it here
+            //   if it's still waiting for a pool thread
+            count();
+            l = prev;
+            l.run();
+        }
+        try{
+            return l.get();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted Loading: "+key);
+        }catch(ExecutionException e){
+            Throwable t = e.getCause();
+            if(t instanceof IOException)throw (IOException)t;
+            if(t instanceof RuntimeException)throw (RuntimeException)t;
+            if(t instanceof Error)throw (Error)t;
+            throw new RuntimeException(t);
+        }
+    }
+    /** Load the image with the given key on the background pool, unless it
+     *    is already being loaded */
+    static Future<BufferedImage> submit(String key, Callable<BufferedImage> loader){
+        Load l = new Load(key, loader), prev = loading.putIfAbsent(key, l);
+        if(prev != null)return prev;
+        pool().execute(l);
+        return l;
+    }
+    /** The background loading pool, shared with {@link AsyncImage}s */
+    static synchronized ExecutorService pool(){
+        if(pool == null){
+            int n = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+            pool = Executors.newFixedThreadPool(n, new ThreadFactory(){
+                public Thread newThread(Runnable r){
+                    Thread t = new Thread(r, "ImageCache Loader");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return pool;
+    }
+    
+    /** Find the cached image with the given key (counting a hit), or null */
+    static synchronized BufferedImage lookup(String key){
+        Entry e = cache.get(key);
+        if(e == null)return null;
+        hits++;
+        return e.img;
+    }
+    /** Count a hit on an image that is still loading */
+    private static synchronized void count(){ hits++; }
+    /** Count a miss, i.e., an image that has to be loaded */
+    private static synchronized void miss(){ misses++; }
+    /** Store the image with the given key */
+    private static synchronized void store(String key, BufferedImage img){
+        long size = bytes(img);
+        if(size > maxBytes)
+            return;
+        Entry old = cache.put(key, new Entry(img, size));
+        if(old != null)
+            bytes -= old.bytes;
+        bytes += size;
+        evict();
+    }
+    /** Remove least-recently used entries until we're under the limit */
+    private static void evict(){
+        Iterator<Entry> i = cache.values().iterator();
+        while(bytes > maxBytes && i.hasNext()){
+            Entry e = i.next();
+            i.remove();
+            bytes -= e.bytes;
+            evictions++;
+        }
+    }
+    /** Number of bytes used by the pixels of the image */
+    static long bytes(BufferedImage img){
+        DataBuffer db = img.getRaster().getDataBuffer();
+        return (long)db.getSize()*db.getNumBanks()*DataBuffer.getDataTypeSize(db.getDataType())/8;
+    }
+    
+    /** A cached image and its size */
+    private static class Entry{
+        final BufferedImage img;
+        final long bytes;
+        Entry(BufferedImage img, long bytes){
+            this.img = img;
+            this.bytes = bytes;
+        }
+    }
+    
+    /** Loading of a single image, which is cached once it's decoded */
+    private static class Load extends FutureTask<BufferedImage>{
+        final String key;
+        Load(final String key, final Callable<BufferedImage> loader){
+            super(new Callable<BufferedImage>(){
+                public BufferedImage call() throws Exception{
+                    BufferedImage img = lookup(key);
+                    if(img != null)return img;
+                    miss();
+                    img = loader.call();
+                    if(img == null)
+                        throw new IOException("Unknown Image Format: "+key);
+                    store(key, img);
+                    return img;
+                }
+            });
+            this.key = key;
+        }
+        protected void done(){
+            loading.remove(this.key, this);
+        }
+    }
+}
@@ -0,0 +1,708 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/ImageCodec.java                                       *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package image;
+
+import java.awt.Color;
+import java.awt.Polygon;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/** A compact, versioned binary format for Images and Scenes, e.g., to send
+ *    Scenes from a universe server to its spectators, or to keep snapshots
+ *    on disk.
+ *  <p>
+ *    Each Image is written as a postfix list of operations: the parts of an
+ *    Image come before the Image itself, so the reader rebuilds the tree with
+ *    a stack and no recursion.  Long chains of placed Scenes and Overlays are
+ *    also written without recursion.  Structurally equal subtrees (see
+ *    {@link Image#equals(Object)}) are only written once, later copies refer
+ *    back to the first.  Colors are packed ARGB ints, and integral numbers
+ *    take a byte or two.
+ *  </p>
+ *  <p>
+ *    The pixels of RasterImages (and FromFiles) are written as Deflated
+ *    blocks, tagged with a hash of their contents.  A {@link Writer} only
+ *    sends each distinct block once, so a stream of Scenes (e.g., one per
+ *    tick) only pays for a sprite sheet the first time it is drawn.
+ *    Decoded rasters draw the same, but are new images, so they are not
+ *    {@link Image#equals(Object) equal} to the originals.  Images this
+ *    format does not know (e.g., Widgets) are written as their rasterized
+ *    pixels.
+ *  </p>
+ *  <p>
+ *    Reading a stream never does any other I/O: a decoded
+ *    {@link AsyncImage} shows its placeholder until its loading is started
+ *    explicitly, with {@link AsyncImage#start()}.
+ *  </p>
+ */
+public final class ImageCodec{
+    /** Marks the start of a stream ("JWIC") */
+    public static final int MAGIC = 0x4A574943;
+    /** Current version of the format */
+    public static final int VERSION = 3;
+    /** Largest pixel block (width times height) a stream may contain */
+    static final int MAX_PIXELS = 1<<26;
+    /** Largest number of points in a polygon/star a stream may contain */
+    static final int MAX_POINTS = 1<<20;
+    /** Largest string (in UTF-8 bytes) a stream may contain */
+    static final int MAX_STRING = 1<<24;
+    
+    // Operations...
+    static final int END = 0, REF = 1,
+            RECTANGLE = 2, SQUARE = 3, ELLIPSE = 4, CIRCLE = 5, ROUNDRECT = 6,
+            LINE = 7, TRIANGLE = 8, POLYGON = 9, STAR = 10, TEXT = 11,
+            EMPTY = 12, MT = 13, WHITE = 14, PLACED = 15,
+            OVERLAY = 16, OVERLAYXY = 17,
+            TRANSFORMED = 18, ROTATE = 19, SCALE = 20, FLIP = 21,
+            RASTER = 22, FROMFILE = 23, ASYNC = 24,
+            // Since version 2
+            OVERLAYS = 25;
+            // Since version 3 strings are written as a length and UTF-8
+            //   bytes, rather than with writeUTF
+    
+    private ImageCodec(){}
+    
+    /** Write the given Image (with a header) to the output */
+    public static void write(Image img, DataOutput out) throws IOException{
+        new Writer(out).write(img);
+    }
+    /** Read an Image (with a header) from the input */
+    public static Image read(DataInput in) throws IOException{
+        return new Reader(in).read();
+    }
+    /** Encode the given Image as an array of bytes */
+    public static byte[] encode(Image img){
+        try{
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            write(img, new DataOutputStream(bytes));
+            return bytes.toByteArray();
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+    /** Decode an Image from an array of bytes */
+    public static Image decode(byte[] bytes){
+        try{
+            return read(new DataInputStream(new ByteArrayInputStream(bytes)));
+        }catch(IOException e){
+            throw new RuntimeException("Bad Image Data: "+e.getMessage(), e);
+        }
+    }
+    
+    /** Writes a stream of Images to an output.  The header is written before
+     *    the first Image, and pixel blocks are shared by all the Images
+     *    written. */
+    public static class Writer{
+        private final DataOutput out;
+        private boolean started;
+        /** Ids of the Images written so far (for the current Image) */
+        private HashMap<Image, Integer> ids;
+        private int count;
+        /** Indices of the pixel blocks written so far, by content hash */
+        private final HashMap<Long, Integer> blocks = new HashMap<Long, Integer>();
+        private final Deflater deflater = new Deflater();
+        private final byte[] buff = new byte[1<<14];
+        
+        /** Create a Writer for the given output */
+        public Writer(DataOutput out){
+            this.out = out;
+        }
+        
+        /** Write the given Image */
+        public void write(Image img) throws IOException{
+            if(!this.started){
+                this.out.writeInt(MAGIC);
+                this.out.writeByte(VERSION);
+                this.started = true;
+            }
+            this.ids = new HashMap<Image, Integer>();
+            this.count = 0;
+            try{
+                this.node(img);
+                this.out.writeByte(END);
+            }finally{
+                this.ids = null;
+            }
+        }
+        
+        /** Write a reference to an earlier copy of the given Image, if there
+         *    is one */
+        private boolean ref(Image img) throws IOException{
+            Integer id = this.ids.get(img);
+            if(id == null)
+                return false;
+            this.out.writeByte(REF);
+            writeVar(this.out, id);
+            return true;
+        }
+        /** Give the Image just written the next id */
+        private void record(Image img){
+            this.ids.put(img, this.count++);
+        }
+        
+        /** Write an Image, following chains of Scenes/Overlays with a loop */
+        private void node(Image img) throws IOException{
+            if(this.ref(img))
+                return;
+            if(below(img) == null){
+                this.single(img);
+                return;
+            }
+            ArrayList<Image> chain = new ArrayList<Image>();
+            Image base = img;
+            do{
+                chain.add(base);
+                base = below(base);
+            }while(below(base) != null && !this.ids.containsKey(base));
+            this.node(base);
+            for(int i = chain.size()-1; i >= 0; i--){
+                this.link(chain.get(i));
+                this.record(chain.get(i));
+            }
+        }
+        /** Write one link of a chain, the lower part has been written */
+        private void link(Image img) throws IOException{
+            if(img instanceof Scene.Placed){
+                Scene.Placed p = (Scene.Placed)img;
+                this.node(p.img);
+                this.out.writeByte(PLACED);
+                writeNum(this.out, p.x);
+                writeNum(this.out, p.y);
+            }else{
+                Overlay o = (Overlay)img;
+                Image[] layers = o.layers;
+                for(int i = layers.length-2; i >= 0; i--)
+                    this.node(layers[i]);
+                if(layers.length > 2){
+                    this.out.writeByte(OVERLAYS);
+                    writeVar(this.out, layers.length);
+                }else if(o instanceof OverlayXY){
+                    this.out.writeByte(OVERLAYXY);
+                    writeNum(this.out, ((OverlayXY)o).dx);
+                    writeNum(this.out, ((OverlayXY)o).dy);
+                }else{
+                    this.out.writeByte(OVERLAY);
+                }
+            }
+        }
+        
+        /** Write an Image that is not part of a chain */
+        private void single(Image img) throws IOException{
+            DataOutput out = this.out;
+            Class<?> c = img.getClass();
+            if(c == Rectangle.class || c == Square.class ||
+               c == Ellipse.class || c == Circle.class){
+                Rectangle r = (Rectangle)img;
+                out.writeByte(c == Rectangle.class ? RECTANGLE : c == Square.class ? SQUARE :
+                              c == Ellipse.class ? ELLIPSE : CIRCLE);
+                writeNum(out, r.width);
+                if(c == Rectangle.class || c == Ellipse.class)
+                    writeNum(out, r.height);
+                out.writeByte(r.mode);
+                out.writeInt(r.color.getRGB());
+            }else if(c == RoundRectangle.class){
+                RoundRectangle r = (RoundRectangle)img;
+                out.writeByte(ROUNDRECT);
+                writeNum(out, r.width);
+                writeNum(out, r.height);
+                writeNum(out, r.rx);
+                writeNum(out, r.ry);
+                out.writeByte(r.mode);
+                out.writeInt(r.color.getRGB());
+            }else if(c == Line.class){
+                Line l = (Line)img;
+                out.writeByte(LINE);
+                writeNum(out, l.x);
+                writeNum(out, l.y);
+                out.writeInt(l.color.getRGB());
+            }else if(c == Triangle.class){
+                Triangle t = (Triangle)img;
+                out.writeByte(TRIANGLE);
+                writeNum(out, t.height);
+                out.writeByte(t.mode);
+                out.writeInt(t.color.getRGB());
+            }else if(c == RegularPolygon.class || c == Star.class){
+                RegularPolygon r = (RegularPolygon)img;
+                if(r.poly.npoints > MAX_POINTS)
+                    throw new IOException("Too many points: "+r.poly.npoints);
+                out.writeByte(c == Star.class ? STAR : POLYGON);
+                writeVar(out, r.poly.npoints);
+                for(int i = 0; i < r.poly.npoints; i++){
+                    writeNum(out, r.poly.xpoints[i]);
+                    writeNum(out, r.poly.ypoints[i]);
+                }
+                out.writeByte(r.mode);
+                out.writeInt(r.color.getRGB());
+            }else if(c == Text.class){
+                Text t = (Text)img;
+                out.writeByte(TEXT);
+                writeString(out, t.str);
+                writeVar(out, t.size);
+                out.writeInt(t.color.getRGB());
+            }else if(c == EmptyScene.class){
+                EmptyScene e = (EmptyScene)img;
+                out.writeByte(EMPTY);
+                writeVar(out, e.width);
+                writeVar(out, e.height);
+                out.writeBoolean(e.clipped);
+                out.writeInt(e.color.getRGB());
+            }else if(c == Image.MT.class || c == Image.White.class){
+                EmptyScene e = (EmptyScene)img;
+                out.writeByte(c == Image.MT.class ? MT : WHITE);
+                writeVar(out, e.width);
+                writeVar(out, e.height);
+            }else if(c == Transformed.class || c == Rotate.class ||
+                     c == Scale.class || c == Flip.class){
+                Transformed t = (Transformed)img;
+                this.node(t.img);
+                if(c == Rotate.class){
+                    out.writeByte(ROTATE);
+                    writeNum(out, ((Rotate)t).angle);
+                }else if(c == Flip.class){
+                    out.writeByte(FLIP);
+                    out.writeBoolean(((Flip)t).horizontal);
+                }else if(c == Scale.class){
+                    out.writeByte(SCALE);
+                    writeNum(out, ((Scale)t).sx);
+                    writeNum(out, ((Scale)t).sy);
+                }else{
+                    out.writeByte(TRANSFORMED);
+                    double[] m = new double[6];
+                    t.getTransform().getMatrix(m);
+                    for(double d : m)
+                        writeNum(out, d);
+                }
+            }else if(c == AsyncImage.class){
+                AsyncImage a = (AsyncImage)img;
+                this.node(a.placeholder);
+                out.writeByte(ASYNC);
+                writeString(out, a.url);
+                out.writeBoolean(a.fixed);
+            }else if(img instanceof RasterImage){
+                RasterImage r = (RasterImage)img;
+                out.writeByte(img instanceof FromFile ? FROMFILE : RASTER);
+                writeNum(out, r.pinholeX);
+                writeNum(out, r.pinholeY);
+                this.pixels(r.img);
+            }else{
+                // Unknown (or user defined) Images are sent as pixels
+                out.writeByte(RASTER);
+                writeNum(out, img.pinholeX);
+                writeNum(out, img.pinholeY);
+                this.pixels(img.rasterize().img);
+            }
+            this.record(img);
+        }
+        
+        /** Write the pixels of an image, or the index of an earlier block
+         *    with the same contents */
+        private void pixels(BufferedImage img) throws IOException{
+            int w = img.getWidth(), h = img.getHeight();
+            if((long)w*h > MAX_PIXELS)
+                throw new IOException("Pixel block too large: "+w+"x"+h);
+            int[] px = img.getRGB(0, 0, w, h, null, 0, w);
+            long hash = hash(px, w, h);
+            Integer k = this.blocks.get(hash);
+            if(k != null){
+                writeVar(this.out, k+1);
+                return;
+            }
+            this.blocks.put(hash, this.blocks.size());
+            writeVar(this.out, 0);
+            writeVar(this.out, w);
+            writeVar(this.out, h);
+            this.out.writeLong(hash);
+            
+            // Each pixel is stored as its difference from the one to its left
+            byte[] raw = new byte[px.length*4];
+            for(int y = 0, i = 0; y < h; y++){
+                int left = 0;
+                for(int x = 0; x < w; x++, i++){
+                    int p = px[i], d = p-left;
+                    left = p;
+                    raw[4*i] = (byte)(d>>>24);
+                    raw[4*i+1] = (byte)(d>>>16);
+                    raw[4*i+2] = (byte)(d>>>8);
+                    raw[4*i+3] = (byte)d;
+                }
+            }
+            ByteArrayOutputStream zip = new ByteArrayOutputStream(raw.length/8+16);
+            this.deflater.reset();
+            this.deflater.setInput(raw);
+            this.deflater.finish();
+            while(!this.deflater.finished()){
+                int n = this.deflater.deflate(this.buff);
+                zip.write(this.buff, 0, n);
+            }
+            writeVar(this.out, zip.size());
+            this.out.write(zip.toByteArray());
+        }
+    }
+    
+    /** Reads a stream of Images written by a {@link Writer} */
+    public static class Reader{
+        private final DataInput in;
+        private boolean started;
+        /** Version of the stream being read */
+        private int version;
+        /** Pixel blocks read so far, in order */
+        private final ArrayList<BufferedImage> blocks = new ArrayList<BufferedImage>();
+        private final Inflater inflater = new Inflater();
+        
+        /** Create a Reader for the given input */
+        public Reader(DataInput in){
+            this.in = in;
+        }
+        
+        /** Read the next Image */
+        public Image read() throws IOException{
+            DataInput in = this.in;
+            if(!this.started){
+                if(in.readInt() != MAGIC)
+                    throw new IOException("Not an Image stream");
+                int v = in.readUnsignedByte();
+                if(v > VERSION)
+                    throw new IOException("Unsupported Image stream version: "+v);
+                this.version = v;
+                this.started = true;
+            }
+            ArrayList<Image> ids = new ArrayList<Image>(),
+                    stack = new ArrayList<Image>();
+            while(true){
+                int op = in.readUnsignedByte();
+                Image img;
+                switch(op){
+                    case END:
+                        if(stack.size() != 1)
+                            throw new IOException("Malformed Image stream");
+                        return stack.get(0);
+                    case REF:{
+                        int id = readVar(in);
+                        if(id >= ids.size())
+                            throw new IOException("Bad Image reference: "+id);
+                        stack.add(ids.get(id));
+                        continue;
+                    }
+                    case RECTANGLE:{
+                        double w = readNum(in), h = readNum(in);
+                        img = new Rectangle(w, h, mode(in), in.readInt());
+                        break;
+                    }
+                    case SQUARE:
+                        img = new Square(readNum(in), mode(in), in.readInt());
+                        break;
+                    case ELLIPSE:{
+                        double w = readNum(in), h = readNum(in);
+                        img = new Ellipse(w, h, mode(in), in.readInt());
+                        break;
+                    }
+                    case CIRCLE:
+                        img = new Circle(readNum(in)/2, mode(in), in.readInt());
+                        break;
+                    case ROUNDRECT:{
+                        double w = readNum(in), h = readNum(in),
+                               rx = readNum(in), ry = readNum(in);
+                        img = new RoundRectangle(w, h, rx, ry, mode(in), in.readInt());
+                        break;
+                    }
+                    case LINE:{
+                        double x = readNum(in), y = readNum(in);
+                        img = new Line(x, y, in.readInt());
+                        break;
+                    }
+                    case TRIANGLE:{
+                        double h = readNum(in);
+                        img = new Triangle(h, mode(in), in.readInt());
+                        break;
+                    }
+                    case POLYGON: case STAR:{
+                        int n = readVar(in);
+                        if(n > MAX_POINTS)
+                            throw new IOException("Bad number of points: "+n);
+                        int[] xs = new int[n], ys = new int[n];
+                        for(int i = 0; i < n; i++){
+                            xs[i] = (int)readNum(in);
+                            ys[i] = (int)readNum(in);
+                        }
+                        int mode = in.readUnsignedByte();
+                        Color color = Image.color(in.readInt());
+                        Polygon poly = new Polygon(xs, ys, n);
+                        img = (op == STAR) ? new Star(poly, mode, color) :
+                            new RegularPolygon(poly, mode, color);
+                        break;
+                    }
+                    case TEXT:{
+                        String str = this.string();
+                        int size = readVar(in);
+                        img = new Text(str, (double)size, in.readInt());
+                        break;
+                    }
+                    case EMPTY:{
+                        int w = readVar(in), h = readVar(in);
+                        boolean clipped = in.readBoolean();
+                        EmptyScene e = new EmptyScene(w, h, in.readInt());
+                        e.clipped = clipped;
+                        img = e;
+                        break;
+                    }
+                    case MT:
+                        img = new Image.MT(readVar(in), readVar(in));
+                        break;
+                    case WHITE:
+                        img = new Image.White(readVar(in), readVar(in));
+                        break;
+                    case PLACED:{
+                        Image top = pop(stack);
+                        Image next = pop(stack);
+                        if(!(next instanceof Scene))
+                            throw new IOException("Malformed Image stream");
+                        double x = readNum(in), y = readNum(in);
+                        img = new Scene.Placed(top, x, y, (Scene)next);
+                        break;
+                    }
+                    case OVERLAY:{
+                        Image top = pop(stack);
+                        img = new Overlay(top, pop(stack));
+                        break;
+                    }
+                    case OVERLAYS:{
+                        int n = readVar(in);
+                        if(n < 2 || n > stack.size())
+                            throw new IOException("Malformed Image stream");
+                        Image[] layers = new Image[n];
+                        for(int i = 0; i < n; i++)
+                            layers[i] = pop(stack);
+                        img = new Overlay(layers);
+                        break;
+                    }
+                    case OVERLAYXY:{
+                        Image top = pop(stack), bot = pop(stack);
+                        double dx = readNum(in), dy = readNum(in);
+                        img = new OverlayXY(top, dx, dy, bot);
+                        break;
+                    }
+                    case ROTATE:
+                        img = new Rotate(pop(stack), readNum(in));
+                        break;
+                    case SCALE:{
+                        Image i = pop(stack);
+                        double sx = readNum(in), sy = readNum(in);
+                        img = new Scale(i, sx, sy);
+                        break;
+                    }
+                    case FLIP:
+                        img = new Flip(pop(stack), in.readBoolean());
+                        break;
+                    case TRANSFORMED:{
+                        Image i = pop(stack);
+                        double[] m = new double[6];
+                        for(int k = 0; k < m.length; k++)
+                            m[k] = readNum(in);
+                        img = new Transformed(i, new AffineTransform(m));
+                        break;
+                    }
+                    case ASYNC:{
+                        Image placeholder = pop(stack);
+                        String url = this.string();
+                        // Never load while decoding, see AsyncImage.start()
+                        img = AsyncImage.unloaded(url, placeholder, in.readBoolean());
+                        break;
+                    }
+                    case RASTER: case FROMFILE:{
+                        double px = readNum(in), py = readNum(in);
+                        RasterImage r = (op == FROMFILE) ? new FromFile() : new RasterImage(1, 1);
+                        r.init(this.pixels());
+                        r.pinholeX = px;
+                        r.pinholeY = py;
+                        img = r;
+                        break;
+                    }
+                    default:
+                        throw new IOException("Unknown Image operation: "+op);
+                }
+                stack.add(img);
+                ids.add(img);
+            }
+        }
+        
+        /** Read a string, written as by the stream's version */
+        private String string() throws IOException{
+            if(this.version < 3)
+                return this.in.readUTF();
+            int len = readVar(this.in);
+            if(len > MAX_STRING)
+                throw new IOException("Bad string length: "+len);
+            byte[] b = new byte[len];
+            this.in.readFully(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+        
+        /** Read a block of pixels, or find an earlier one */
+        private BufferedImage pixels() throws IOException{
+            int k = readVar(this.in);
+            if(k > 0){
+                if(k > this.blocks.size())
+                    throw new IOException("Bad pixel block reference: "+(k-1));
+                return this.blocks.get(k-1);
+            }
+            int w = readVar(this.in), h = readVar(this.in);
+            if(w == 0 || h == 0 || (long)w*h > MAX_PIXELS)
+                throw new IOException("Bad pixel block size: "+w+"x"+h);
+            long hash = this.in.readLong();
+            int len = readVar(this.in);
+            // Deflate never grows its input by more than a little
+            if(len > w*h*4+(w*h*4>>4)+64)
+                throw new IOException("Bad pixel block length: "+len);
+            byte[] zip = new byte[len];
+            this.in.readFully(zip);
+            
+            byte[] raw = new byte[w*h*4];
+            this.inflater.reset();
+            this.inflater.setInput(zip);
+            try{
+                int n = 0;
+                while(n < raw.length && !this.inflater.finished()){
+                    int r = this.inflater.inflate(raw, n, raw.length-n);
+                    if(r == 0 && this.inflater.needsInput())
+                        break;
+                    n += r;
+                }
+                if(n != raw.length)
+                    throw new IOException("Truncated pixel block");
+            }catch(DataFormatException e){
+                throw new IOException("Bad pixel block: "+e.getMessage());
+            }
+            BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            int[] px = ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
+            for(int y = 0, i = 0; y < h; y++){
+                int left = 0;
+                for(int x = 0; x < w; x++, i++){
+                    left += (raw[4*i]&0xFF)<<24 | (raw[4*i+1]&0xFF)<<16 |
+                            (raw[4*i+2]&0xFF)<<8 | (raw[4*i+3]&0xFF);
+                    px[i] = left;
+                }
+            }
+            if(hash(px, w, h) != hash)
+                throw new IOException("Corrupt pixel block");
+            this.blocks.add(img);
+            return img;
+        }
+    }
+    
+    /** Return the Image below the given one in a chain (the next Scene of a
+     *    placed image, or the bottom of an Overlay), or null */
+    private static Image below(Image img){
+        if(img instanceof Scene.Placed)
+            return ((Scene.Placed)img).next;
+        if(img.getClass() == Overlay.class || img.getClass() == OverlayXY.class){
+            Image[] layers = ((Overlay)img).layers;
+            return layers[layers.length-1];
+        }
+        return null;
+    }
+    private static Image pop(ArrayList<Image> stack) throws IOException{
+        if(stack.isEmpty())
+            throw new IOException("Malformed Image stream");
+        return stack.remove(stack.size()-1);
+    }
+    private static String mode(DataInput in) throws IOException{
+        return in.readUnsignedByte() == Image.OUTLINE ? "outline" : "solid";
+    }
+    
+    /** 64-bit (FNV-1a) hash of the size and pixels of an image */
+    static long hash(int[] px, int w, int h){
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash^w)*0x100000001b3L;
+        hash = (hash^h)*0x100000001b3L;
+        for(int p : px)
+            hash = (hash^p)*0x100000001b3L;
+        return hash;
+    }
+    
+    /** Write a string as its length and UTF-8 bytes */
+    static void writeString(DataOutput out, String str) throws IOException{
+        byte[] b = str.getBytes(StandardCharsets.UTF_8);
+        if(b.length > MAX_STRING)
+            throw new IOException("String too long: "+b.length+" bytes");
+        writeVar(out, b.length);
+        out.write(b);
+    }
+    /** Write an unsigned variable length int (7 bits per byte) */
+    static void writeVar(DataOutput out, long v) throws IOException{
+        while((v & ~0x7FL) != 0){
+            out.writeByte((int)(v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int)v);
+    }
+    /** Read an unsigned variable length int */
+    static int readVar(DataInput in) throws IOException{
+        long v = readVarLong(in);
+        if(v < 0 || v > Integer.MAX_VALUE)
+            throw new IOException("Bad length/index: "+v);
+        return (int)v;
+    }
+    private static long readVarLong(DataInput in) throws IOException{
+        long v = 0;
+        for(int shift = 0; shift < 64; shift += 7){
+            int b = in.readUnsignedByte();
+            v |= (long)(b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return v;
+        }
+        throw new IOException("Malformed number");
+    }
+    /** Write a number: ints as (zig-zag) variable length, others in full */
+    static void writeNum(DataOutput out, double d) throws IOException{
+        int i = (int)d;
+        if(i == d && (i != 0 || 1/d > 0)){
+            writeVar(out, ((long)((i << 1) ^ (i >> 31)) & 0xFFFFFFFFL) << 1);
+        }else{
+            out.writeByte(1);
+            out.writeDouble(d);
+        }
+    }
+    /** Read a number written by writeNum */
+    static double readNum(DataInput in) throws IOException{
+        long v = readVarLong(in);
+        if((v & 1) != 0)
+            return in.readDouble();
+        int z = (int)(v >>> 1);
+        return (z >>> 1) ^ -(z & 1);
+    }
+}
@@ -66,6 +66,14 @@ public class Line extends Image{
 
     /** Create a Line from (0,0) to doubles (X,Y) of the given color */
     public Line(double x, double y, String color){
+        this(x, y, color(color));
+    }
+    /** Create a Line from (0,0) to doubles (X,Y) of the given ARGB color */
+    public Line(double x, double y, int color){
+        this(x, y, color(color));
+    }
+    /** Create a Line with a converted color */
+    private Line(double x, double y, Color color){
         super(Math.abs(x/2),Math.abs(y/2));
         this.x = Math.abs(x);
         // Make sure Y is the only possible negative...
@@ -74,7 +82,7 @@ public class Line extends Image{
         }else{
             this.y = -Math.abs(y);
         }
-        this.color = color(color);
+        this.color = color;
     }
     /** Create a Line from (0,0) to ints (X,Y) of the given color */
     public Line(int x, int y, String color){
@@ -98,5 +106,14 @@ public class Line extends Image{
     public int width(){ return (int)(Math.abs(this.x)+1); }
     /** Return the height of this Line Image */
     public int height(){ return (int)(Math.abs(this.y)+1); }
+    
+    /** Same offsets and color */
+    protected boolean same(Image i){
+        Line l = (Line)i;
+        return same(this.x, l.x) && same(this.y, l.y) && this.color.equals(l.color);
+    }
+    protected int hash(){
+        return (hash(this.x)*31+hash(this.y))*31+this.color.hashCode();
+    }
 }
 
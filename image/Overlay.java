@@ -97,44 +97,115 @@ import java.awt.*;
  */
 public class Overlay extends Image{
     protected Image top;
+    /** The bottom Image of a two-layer Overlay (null when there are more) */
     protected Image bot;
     protected double width;
     protected double height;
+    /** All the layers of this Overlay, top first */
+    Image[] layers;
+    /** Flattened version of this Overlay, compiled when first painted */
+    DisplayList compiled;
     
     /** Construct an Overlay from the two or more Images */
     public Overlay(Image top, Image next, Image ... imgs){
-        this(top, imgs.length==0?next:make(next, imgs, 0));
+        this(layers(top, next, imgs));
     }
     /** Construct an Overlay from the two Images */
     protected Overlay(Image top, Image bot){
-        this(top, bot,
-                (Math.max(top.leftOfPin(),bot.leftOfPin())+
-                 Math.max(top.rightOfPin(),bot.rightOfPin())),
-                (Math.max(top.upOfPin(),bot.upOfPin())+
-                 Math.max(top.downOfPin(),bot.downOfPin())));
+        this(new Image[]{top, bot});
     }
     /** Construct an Overlay from the two Images with the given width and height */
     protected Overlay(Image top, Image bot, double width, double height){
+        this(new Image[]{top, bot}, width, height);
+    }
+    /** Construct an Overlay of the given layers (top first, at least two) */
+    Overlay(Image[] layers){
+        this(layers, bounds(layers, true), bounds(layers, false));
+    }
+    private Overlay(Image[] layers, double width, double height){
         super(width/2, height/2);
-        this.top = top;
-        this.bot = bot;
+        this.layers = layers;
+        this.top = layers[0];
+        this.bot = (layers.length == 2) ? layers[1] : null;
         this.width = width;
         this.height = height;
+        // Hash now, while the parts are known to be hashed (subclasses
+        //   may not have set their fields yet)
+        if(this.getClass() == Overlay.class)
+            this.hashCode();
     }
-    /** Make a layered Image with top t and bottoms of imgs[i..] */
-    private static Image make(Image t, Image[] imgs, int i){
-        if(i == imgs.length)
-            return t;
-        return new Overlay(t, make(imgs[i], imgs, i+1));    
+    /** Collect the layers given to the public constructor */
+    private static Image[] layers(Image top, Image next, Image[] imgs){
+        Image[] all = new Image[imgs.length+2];
+        all[0] = top;
+        all[1] = next;
+        System.arraycopy(imgs, 0, all, 2, imgs.length);
+        return all;
+    }
+    /** Width (or height) of the layers, in one pass from the bottom.  The
+     *    size is the same as that of the nested two-layer Overlays these
+     *    replace, each of which is centered on its pinhole */
+    private static double bounds(Image[] layers, boolean horiz){
+        int n = layers.length;
+        Image last = layers[n-1];
+        double lo = horiz ? last.leftOfPin() : last.upOfPin(),
+               hi = horiz ? last.rightOfPin() : last.downOfPin(),
+               size = 0;
+        for(int i = n-2; i >= 0; i--){
+            Image img = layers[i];
+            size = (Math.max(horiz ? img.leftOfPin() : img.upOfPin(), lo)+
+                    Math.max(horiz ? img.rightOfPin() : img.downOfPin(), hi));
+            lo = size/2;
+            hi = (int)size-lo;
+        }
+        return size;
     }
     
-    /** Draw this Overlay image into a Graphics */
+    /** Draw this Overlay image into a Graphics.  The layers are compiled
+     *    into a (cached) DisplayList to avoid deep recursion. */
     public void paint(Graphics g, int xx, int yy){
-        this.bot.paint(g, xx, yy);
-        this.top.paint(g, xx, yy);
+        if(this.getClass() == Overlay.class){
+            this.displayList().paint(g, xx, yy);
+            return;
+        }
+        for(int i = this.layers.length-1; i >= 0; i--)
+            this.layers[i].paint(g, xx, yy);
+    }
+    /** Return a (cached) flattened DisplayList of the images in this Overlay */
+    public DisplayList displayList(){
+        DisplayList dl = this.compiled;
+        if(dl == null)
+            this.compiled = dl = DisplayList.compile(this);
+        return dl;
     }
     /** Return the width of this Image */
     public int width(){ return (int)this.width; }
     /** Return the height of this Image */
     public int height(){ return (int)this.height; }
+    
+    /** Same layers.  Long chains of Overlays (e.g., from <tt>overlay(...)</tt>)
+     *    are compared in a loop rather than recursively */
+    protected boolean same(Image i){
+        Overlay a = this, b = (Overlay)i;
+        while(true){
+            Image[] x = a.layers, y = b.layers;
+            int n = x.length-1;
+            if(y.length-1 != n)return false;
+            for(int k = 0; k < n; k++)
+                if(!samePart(x[k], y[k]))return false;
+            Image p = x[n], q = y[n];
+            if(p.getClass() != Overlay.class || q.getClass() != Overlay.class)
+                return samePart(p, q);
+            if(p == q)return true;
+            if(!shallow(p, q))return false;
+            a = (Overlay)p;
+            b = (Overlay)q;
+        }
+    }
+    protected int hash(){
+        int h = this.layers[0].hashCode();
+        for(int i = 1; i < this.layers.length; i++)
+            h = h*31+this.layers[i].hashCode();
+        return h;
+    }
 }
@@ -96,8 +96,8 @@ import world.Posn;
  *   
  */
 public class OverlayXY extends Overlay{
-    private double dx, dy;
-    private double tx, ty;
+    double dx, dy;
+    double tx, ty;
     
     /** Construct an OverlayXY from the two images and the offset (X,Y) */
     public OverlayXY(Image top, int x, int y, Image bot){
@@ -125,6 +125,8 @@ public class OverlayXY extends Overlay{
             this.ty = this.pinholeY-top.pinholeY;
         //if(y < 0)this.ty += -y;
         
+        if(this.getClass() == OverlayXY.class)
+            this.hashCode();
     }
     
     private static double calcwidth(Image t, Image b, double dx){
@@ -136,9 +138,22 @@ public class OverlayXY extends Overlay{
     
     /** Draw this OverlayXY image into a Graphics */
     public void paint(Graphics g, int xx, int yy){
+        if(this.getClass() == OverlayXY.class){
+            this.displayList().paint(g, xx, yy);
+            return;
+        }
         this.bot.paint(g, round(xx+this.tx+this.dx+this.bot.pinholeX-this.top.pinholeX),
                 round(yy+this.ty+this.dy+this.bot.pinholeY-this.top.pinholeY));
         this.top.paint(g, round(xx+this.tx), round(yy+this.ty));
     }
+    
+    /** Same images and offset */
+    protected boolean same(Image i){
+        OverlayXY o = (OverlayXY)i;
+        return same(this.dx, o.dx) && same(this.dy, o.dy) && super.same(i);
+    }
+    protected int hash(){
+        return (super.hash()*31+hash(this.dx))*31+hash(this.dy);
+    }
 }
 
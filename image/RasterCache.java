@@ -0,0 +1,215 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/RasterCache.java                                      *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package image;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/** An (opt-in) cache of rasterized Images.  When enabled, the results of
+ *    {@link Image#rasterize()}, {@link Image#rotate(double)}, and the
+ *    flip methods are remembered, so static (composite) images are only
+ *    drawn into a raster once, and can then be painted with a single
+ *    <tt>drawImage</tt>.
+ *  <p>
+ *    Entries are keyed using the Image's <tt>equals</tt>/<tt>hashCode</tt>
+ *    (and the kind/amount of any transformation), are evicted in least-recently
+ *    used order once the total size of the cached rasters goes over the
+ *    limit (see {@link #setMaxBytes(long)}), and are held with soft
+ *    references so the garbage collector can reclaim them when memory is low.
+ *    The cache only refers weakly to the Images themselves, and each hit
+ *    moves an entry to the Image it was found for, so an entry is kept as
+ *    long as some equal Image (e.g., the one built for the latest frame)
+ *    is in use, and dropped once none is.
+ *  </p>
+ *  <p>
+ *    Since cached rasters are shared, a <tt>RasterImage</tt> returned while
+ *    the cache is enabled should not be modified (e.g., with <tt>setPixel</tt>).
+ *  </p>
+ */
+public final class RasterCache{
+    private RasterCache(){}
+    
+    /** Kinds of rasterization that are cached */
+    static final int RASTER = 0, ROTATE = 1, FLIP_H = 2, FLIP_V = 3;
+    
+    /** Is the cache in use? */
+    private static volatile boolean enabled = false;
+    /** Maximum (approximate) size of the cached rasters */
+    private static long maxBytes = 32L*1024*1024;
+    /** Current (approximate) size of the cached rasters */
+    private static long bytes = 0;
+    private static long hits = 0, misses = 0, evictions = 0;
+    
+    /** Entries in least-recently used order */
+    private static LinkedHashMap<Key, Entry> cache = new LinkedHashMap<Key, Entry>(64, 0.75f, true);
+    /** Entries whose rasters have been reclaimed by the garbage collector */
+    private static ReferenceQueue<RasterImage> reclaimed = new ReferenceQueue<RasterImage>();
+    /** Keys whose Images have been reclaimed by the garbage collector */
+    private static ReferenceQueue<Image> forgotten = new ReferenceQueue<Image>();
+    
+    /** Turn the cache on or off.  Turning it off also clears it. */
+    public static void setEnabled(boolean on){
+        enabled = on;
+        if(!on)clear();
+    }
+    /** Is the cache currently enabled? */
+    public static boolean isEnabled(){ return enabled; }
+    
+    /** Set the maximum number of bytes of raster data kept in the cache */
+    public static synchronized void setMaxBytes(long max){
+        if(max < 0)
+            throw new IllegalArgumentException("Cache size must be non-negative, got: "+max);
+        maxBytes = max;
+        evict();
+    }
+    /** Return the maximum number of bytes of raster data kept in the cache */
+    public static synchronized long getMaxBytes(){ return maxBytes; }
+    /** Return the number of bytes of raster data currently in the cache */
+    public static synchronized long bytes(){ purge(); return bytes; }
+    /** Return the number of rasters currently in the cache */
+    public static synchronized int size(){ purge(); return cache.size(); }
+    
+    /** Number of lookups that found a cached raster */
+    public static synchronized long hits(){ return hits; }
+    /** Number of lookups that did not find a cached raster */
+    public static synchronized long misses(){ return misses; }
+    /** Number of rasters removed to stay within the size limit, or
+     *    reclaimed by the garbage collector */
+    public static synchronized long evictions(){ return evictions; }
+    /** Reset the hit/miss/eviction counters */
+    public static synchronized void resetStats(){
+        hits = misses = evictions = 0;
+    }
+    /** Remove all the rasters from the cache */
+    public static synchronized void clear(){
+        cache.clear();
+        bytes = 0;
+        while(reclaimed.poll() != null);
+        while(forgotten.poll() != null);
+    }
+    
+    /** Find the cached raster of the given Image/transformation, or null */
+    static synchronized RasterImage lookup(Image img, int kind, double arg){
+        purge();
+        Entry e = cache.get(new Key(img, kind, arg, null));
+        RasterImage r = (e == null) ? null : e.get();
+        if(r == null){
+            misses++;
+        }else{
+            hits++;
+            if(e.key.get() != img){
+                // Follow the newest equal Image, the older one may be dropped
+                cache.remove(e.key);
+                e.key = new Key(img, kind, arg, forgotten);
+                cache.put(e.key, e);
+            }
+        }
+        return r;
+    }
+    /** Store the raster of the given Image/transformation, and return it */
+    static synchronized RasterImage store(Image img, int kind, double arg, RasterImage r){
+        long size = 4L*r.width()*r.height();
+        if(!enabled || size > maxBytes)
+            return r;
+        Key k = new Key(img, kind, arg, forgotten);
+        Entry old = cache.put(k, new Entry(k, r, size, reclaimed));
+        if(old != null)
+            bytes -= old.bytes;
+        bytes += size;
+        evict();
+        return r;
+    }
+    
+    /** Remove least-recently used entries until we're under the limit */
+    private static void evict(){
+        Iterator<Entry> i = cache.values().iterator();
+        while(bytes > maxBytes && i.hasNext()){
+            Entry e = i.next();
+            i.remove();
+            bytes -= e.bytes;
+            evictions++;
+        }
+    }
+    /** Remove entries whose rasters or Images have been reclaimed by the
+     *    garbage collector */
+    private static void purge(){
+        Object o;
+        while((o = reclaimed.poll()) != null)
+            remove(((Entry)o).key, (Entry)o);
+        while((o = forgotten.poll()) != null)
+            remove((Key)o, null);
+    }
+    /** Remove the entry for the given key, if it is still the given one
+     *    (or any, when e is null) */
+    private static void remove(Key k, Entry e){
+        Entry cur = cache.get(k);
+        if(cur != null && (e == null || cur == e)){
+            cache.remove(k);
+            bytes -= cur.bytes;
+            evictions++;
+        }
+    }
+    
+    /** Cache key: a (weak) Image and the kind/amount of transformation.
+     *    The hash is kept so the key can still be found (and removed) once
+     *    its Image is gone; such a key is only equal to itself. */
+    private static class Key extends WeakReference<Image>{
+        final int kind;
+        final double arg;
+        final int hash;
+        
+        Key(Image img, int kind, double arg, ReferenceQueue<Image> q){
+            super(img, q);
+            this.kind = kind;
+            this.arg = arg;
+            long a = Double.doubleToLongBits(arg);
+            this.hash = (img.hashCode()*31+kind)*31+(int)(a^(a>>>32));
+        }
+        public boolean equals(Object o){
+            if(o == this)return true;
+            if(!(o instanceof Key))return false;
+            Key k = (Key)o;
+            if(this.hash != k.hash || this.kind != k.kind ||
+               Double.compare(this.arg, k.arg) != 0)
+                return false;
+            Image img = this.get(), other = k.get();
+            return img != null && other != null && img.equals(other);
+        }
+        public int hashCode(){ return this.hash; }
+    }
+    /** A (soft) cached raster, along with its size */
+    private static class Entry extends SoftReference<RasterImage>{
+        Key key;
+        final long bytes;
+        
+        Entry(Key key, RasterImage r, long bytes, ReferenceQueue<RasterImage> q){
+            super(r, q);
+            this.key = key;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -23,11 +23,21 @@
 
 package image;
 
+import java.awt.AlphaComposite;
 import java.awt.Graphics2D;
 import java.awt.Graphics;
 import java.awt.RenderingHints;
 import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
 
 /** Represents a raster Image drawn into a Buffer.  Because rotating and
  *    scaling arbitrary shapes/images is difficult, we can rasterize, then
@@ -37,16 +47,30 @@ public class RasterImage extends Image{
     protected BufferedImage img;
     protected int w;
     protected int h;
+    /** The image given to init, which identifies the pixels even once they
+     *    have been converted to ARGB ints */
+    private BufferedImage origin;
+    /** Modification stamp: zero until the pixels may have been changed,
+     *    then a new stamp (unique among all RasterImages) for each change */
+    private int mods;
+    private static final AtomicInteger stamps = new AtomicInteger();
     
-    /** Construct a RasterImage with the given width/height */
+    /** Construct a (transparent) RasterImage with the given width/height */
     public RasterImage(int w, int h){
+        this(w, h, 0);
+    }
+    /** Construct a RasterImage with the given width/height, filled with
+     *    the given ARGB color */
+    public RasterImage(int w, int h, int color){
         super(w, h);
         BufferedImage bi = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = bi.createGraphics();
-        //g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        //g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        g.setColor(new Color(0,0,0,0));
-        g.fillRect(0, 0, w, h);
+        if(color != 0){
+            Graphics2D g = bi.createGraphics();
+            g.setComposite(AlphaComposite.Src);
+            g.setColor(color(color));
+            g.fillRect(0, 0, w, h);
+            g.dispose();
+        }
         this.init(bi);
     }
     /** Initialize this FromFile with the given Bitmap */
@@ -56,6 +80,8 @@ public class RasterImage extends Image{
         this.h = img.getHeight();
         this.pinholeX = this.w/2;
         this.pinholeY = this.h/2;
+        this.origin = img;
+        this.mods = 0;
     }
     
     /** Draw this image into a Graphics */
@@ -67,8 +93,31 @@ public class RasterImage extends Image{
     /** Return the height of this Image */
     public int height(){ return this.h; }
     
+    /** RasterImages can be changed, so they are only the same when they
+     *    share the same pixels (e.g., FromFiles of the same file) and
+     *    neither has been changed since.  Composite images (e.g., Scenes)
+     *    hash their parts when they are made, so a Scene holding this image
+     *    is not equal to one made before the image was changed. */
+    protected boolean same(Image i){
+        RasterImage r = (RasterImage)i;
+        return this.origin == r.origin && this.mods == r.mods;
+    }
+    /** The hash code depends on the (changeable) pixel buffer and its
+     *    modification stamp, so it's not cached */
+    public int hashCode(){
+        int h = System.identityHashCode(this.origin)*31+this.mods;
+        return (h*31+hash(this.pinholeX))*31+hash(this.pinholeY);
+    }
+    /** Record that the pixels of this image were changed directly, e.g.,
+     *    through an array kept from an earlier call to {@link #pixels()},
+     *    so it is no longer equal to what it was before */
+    public void changed(){
+        this.mods = stamps.incrementAndGet();
+    }
+    
     /** Get the Graphics2D associated with this RasterImage */
     public Graphics2D getGraphics(){
+        this.changed();
         Graphics2D g = img.createGraphics();
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
@@ -96,6 +145,7 @@ public class RasterImage extends Image{
     }
     /** Set the pixel at the given x/y to the given ARGB integer. */
     public void setPixel(int x, int y, int argb){
+        this.changed();
         this.img.setRGB(x, y, argb);
     }
     /** Set the pixel at the given x/y to the given RGB intensities.
@@ -118,5 +168,177 @@ public class RasterImage extends Image{
     public void setPixel(int x, int y, double alpha, double red, double green, double blue){
         this.setPixel(x, y, (int)(alpha*255), (int)(red*255), (int)(green*255), (int)(blue*255));
     }
+    
+    /** Make sure the pixels of this image are stored as ARGB ints, converting
+     *    (a copy of) the image if needed, e.g., for images loaded from files */
+    private BufferedImage intARGB(){
+        if(this.img.getType() != BufferedImage.TYPE_INT_ARGB){
+            BufferedImage bi = new BufferedImage(this.w, this.h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = bi.createGraphics();
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(this.img, 0, 0, null);
+            g.dispose();
+            this.img = bi;
+        }
+        return this.img;
+    }
+    /** Return the array of ARGB pixels that backs this image (no copy is
+     *    made).  The pixel at (x,y) is at index
+     *    <tt>offset()+y*stride()+x</tt>.  Changes to the array change the
+     *    image directly, though using it may keep Java2D from caching the
+     *    image in video memory.  The image counts as changed by each call
+     *    (see {@link #changed()}). */
+    public int[] pixels(){
+        this.changed();
+        return this.data();
+    }
+    /** Return the pixel array without counting the image as changed, for
+     *    reading (or for writes that call {@link #changed()} themselves) */
+    private int[] data(){
+        return ((DataBufferInt)this.intARGB().getRaster().getDataBuffer()).getData();
+    }
+    /** Return an <tt>IntBuffer</tt> view of the pixels that back this image,
+     *    see {@link #pixels()} */
+    public IntBuffer pixelBuffer(){
+        return IntBuffer.wrap(this.pixels());
+    }
+    /** Return the distance (in ints) between rows of the pixel array */
+    public int stride(){
+        return ((SinglePixelPackedSampleModel)this.intARGB().getSampleModel()).getScanlineStride();
+    }
+    /** Return the index of the top-left pixel in the pixel array */
+    public int offset(){
+        WritableRaster r = this.intARGB().getRaster();
+        return r.getDataBuffer().getOffset()+
+               ((SinglePixelPackedSampleModel)r.getSampleModel()).getOffset(
+                       -r.getSampleModelTranslateX(), -r.getSampleModelTranslateY());
+    }
+    
+    /** Set every pixel of this image to the given ARGB color */
+    public void fill(int argb){
+        this.fill(0, 0, this.w, this.h, argb);
+    }
+    /** Set the pixels of the given region of this image to the given ARGB color */
+    public void fill(int x, int y, int width, int height, int argb){
+        this.changed();
+        int[] px = this.data();
+        int stride = this.stride(), off = this.offset();
+        int x0 = Math.max(x, 0), x1 = Math.min(x+width, this.w),
+            y0 = Math.max(y, 0), y1 = Math.min(y+height, this.h);
+        for(int r = y0; r < y1; r++)
+            Arrays.fill(px, off+r*stride+x0, off+r*stride+Math.max(x0, x1), argb);
+    }
+    /** Copy (without blending) the given region of the source image into
+     *    this image at (dx,dy).  The source may be this image, and the
+     *    regions may overlap. */
+    public void copyRegion(RasterImage src, int sx, int sy, int width, int height, int dx, int dy){
+        // Clip the region to both images
+        if(sx < 0){ dx -= sx; width += sx; sx = 0; }
+        if(sy < 0){ dy -= sy; height += sy; sy = 0; }
+        if(dx < 0){ sx -= dx; width += dx; dx = 0; }
+        if(dy < 0){ sy -= dy; height += dy; dy = 0; }
+        width = Math.min(width, Math.min(src.w-sx, this.w-dx));
+        height = Math.min(height, Math.min(src.h-sy, this.h-dy));
+        if(width <= 0 || height <= 0)return;
+        
+        this.changed();
+        int[] from = src.data(), to = this.data();
+        int fs = src.stride(), fo = src.offset(),
+            ts = this.stride(), to0 = this.offset();
+        // Copy bottom-up when moving pixels down within the same image
+        boolean up = (from == to && dy > sy);
+        for(int i = 0; i < height; i++){
+            int r = up ? height-1-i : i;
+            System.arraycopy(from, fo+(sy+r)*fs+sx, to, to0+(dy+r)*ts+dx, width);
+        }
+    }
+    /** Replace each pixel of this image with the result of the given function
+     *    applied to its ARGB value */
+    public void mapPixels(IntUnaryOperator f){
+        this.changed();
+        this.mapRows(f, this.data(), this.stride(), this.offset(), 0, this.h);
+    }
+    /** Call the given function with the location and ARGB value of each pixel
+     *    of this image, row by row */
+    public void forEachPixel(PixelConsumer f){
+        this.visitRows(f, this.data(), this.stride(), this.offset(), 0, this.h);
+    }
+    /** Like {@link #mapPixels(IntUnaryOperator)}, but rows are split between
+     *    the threads of the common fork-join pool, so the function must be
+     *    safe to call from several threads at once. */
+    public void mapPixelsParallel(final IntUnaryOperator f){
+        // Get (or convert) the pixels once, before the tasks share them
+        this.changed();
+        final int[] px = this.data();
+        final int stride = this.stride(), off = this.offset();
+        ForkJoinPool.commonPool().invoke(new Rows(0, this.h){
+            private static final long serialVersionUID = 1L;
+            void run(int from, int to){ mapRows(f, px, stride, off, from, to); }
+        });
+    }
+    /** Like {@link #forEachPixel(PixelConsumer)}, but rows are split between
+     *    the threads of the common fork-join pool, so the function must be
+     *    safe to call from several threads at once. */
+    public void forEachPixelParallel(final PixelConsumer f){
+        final int[] px = this.data();
+        final int stride = this.stride(), off = this.offset();
+        ForkJoinPool.commonPool().invoke(new Rows(0, this.h){
+            private static final long serialVersionUID = 1L;
+            void run(int from, int to){ visitRows(f, px, stride, off, from, to); }
+        });
+    }
+    
+    /** Map the function over rows [from..to) of the given pixels */
+    private void mapRows(IntUnaryOperator f, int[] px, int stride, int off, int from, int to){
+        for(int y = from; y < to; y++){
+            for(int i = off+y*stride, end = i+this.w; i < end; i++)
+                px[i] = f.applyAsInt(px[i]);
+        }
+    }
+    /** Visit rows [from..to) of the given pixels */
+    private void visitRows(PixelConsumer f, int[] px, int stride, int off, int from, int to){
+        for(int y = from; y < to; y++){
+            int row = off+y*stride;
+            for(int x = 0; x < this.w; x++)
+                f.accept(x, y, px[row+x]);
+        }
+    }
+    
+    /** A function called with the location and ARGB value of a pixel */
+    public static interface PixelConsumer{
+        /** Called for the pixel at (x,y) with the given ARGB value */
+        public void accept(int x, int y, int argb);
+    }
+    
+    /** Fork-join task that splits a range of rows in half until it is small */
+    private abstract class Rows extends RecursiveAction{
+        private static final long serialVersionUID = 1L;
+        int from, to;
+        Rows(int from, int to){
+            this.from = from;
+            this.to = to;
+        }
+        /** Process the rows [from..to) */
+        abstract void run(int from, int to);
+        
+        protected void compute(){
+            // Roughly 16K pixels per task
+            int rows = Math.max(1, (1<<14)/Math.max(1, RasterImage.this.w));
+            if(this.to-this.from <= rows){
+                this.run(this.from, this.to);
+            }else{
+                final Rows outer = this;
+                int mid = (this.from+this.to)>>>1;
+                invokeAll(new Rows(this.from, mid){
+                              private static final long serialVersionUID = 1L;
+                              void run(int f, int t){ outer.run(f, t); }
+                          },
+                          new Rows(mid, this.to){
+                              private static final long serialVersionUID = 1L;
+                              void run(int f, int t){ outer.run(f, t); }
+                          });
+            }
+        }
+    }
 }
 
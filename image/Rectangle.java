@@ -65,6 +65,10 @@ public class Rectangle extends Image{
     public Rectangle(int width, int height, String mode, String color){
         this(width,height,mode(mode),color(color));
     }
+    /** Create a Rectangle Image with (double) width and height, mode and ARGB color */
+    public Rectangle(double width, double height, String mode, int color){
+        this(width,height,mode(mode),color(color));
+    }
     /** Create a Rectangle with converted mode and color */
     private Rectangle(double width, double height, int mode, Color color){
         super(width/2, height/2);
@@ -85,4 +89,14 @@ public class Rectangle extends Image{
     public int width(){ return (int)this.width; }
     /** Return the Height of this Image */
     public int height(){ return (int)this.height; }
+    
+    /** Same size, mode, and color */
+    protected boolean same(Image i){
+        Rectangle r = (Rectangle)i;
+        return same(this.width, r.width) && same(this.height, r.height) &&
+               this.mode == r.mode && this.color.equals(r.color);
+    }
+    protected int hash(){
+        return ((hash(this.width)*31+hash(this.height))*31+this.mode)*31+this.color.hashCode();
+    }
 }
@@ -71,6 +71,10 @@ public class RegularPolygon extends Image{
     public RegularPolygon(int radius, int sides, String mode, String color){
         this(radius,sides,mode(mode),color(color));
     }
+    /** Create a Regular Polygon Image with (double) radius, sides, mode and ARGB color */
+    public RegularPolygon(double radius, int sides, String mode, int color){
+        this(round(radius),sides,mode(mode),color(color));
+    }
     /** Create a Regular Polygon Star with converted mode and color */
     protected RegularPolygon(int radius, int sides, int mode, Color color){
         this(make(radius, sides), mode, color);
@@ -112,4 +116,23 @@ public class RegularPolygon extends Image{
     public int width(){ return this.width; }
     /** Return the Height of this Image */
     public int height(){ return this.height; }
+    
+    /** Same points, mode, and color */
+    protected boolean same(Image i){
+        RegularPolygon r = (RegularPolygon)i;
+        if(this.mode != r.mode || !this.color.equals(r.color) ||
+           this.poly.npoints != r.poly.npoints)
+            return false;
+        for(int k = 0; k < this.poly.npoints; k++)
+            if(this.poly.xpoints[k] != r.poly.xpoints[k] ||
+               this.poly.ypoints[k] != r.poly.ypoints[k])
+                return false;
+        return true;
+    }
+    protected int hash(){
+        int h = this.mode*31+this.color.hashCode();
+        for(int k = 0; k < this.poly.npoints; k++)
+            h = (h*31+this.poly.xpoints[k])*31+this.poly.ypoints[k];
+        return h;
+    }
 }
@@ -0,0 +1,46 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/Rotate.java                                           *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package image;
+
+import java.awt.geom.AffineTransform;
+
+/** Represents an Image rotated (counter-clockwise) around its pinhole by
+ *    a given angle in degrees.  The rotation is applied when the Image is
+ *    drawn, see {@link Transformed}. */
+public class Rotate extends Transformed{
+    protected double angle;
+    
+    /** Construct a rotated version of the given Image by the angle in degrees */
+    public Rotate(Image img, double angle){
+        super(img, transform(angle));
+        this.angle = angle;
+    }
+    /** Return the rotation (in degrees) of this Image */
+    public double getAngle(){ return this.angle; }
+    
+    /** Create the transformation for the given angle in degrees */
+    static AffineTransform transform(double ang){
+        return AffineTransform.getRotateInstance(Math.toRadians(-((ang + 360.0) % 360.0)));
+    }
+}
@@ -0,0 +1,224 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/RotationCache.java                                    *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package image;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/** A cache of rotated versions of a single (base) Image, for sprites that
+ *    are drawn at a slowly changing angle.  Angles are quantized into a
+ *    fixed number of steps around the circle, and each rotation is drawn
+ *    (once, when it is first needed) into its own cell.  The Images
+ *    returned by {@link #get(double)} then draw themselves with a single
+ *    <tt>drawImage</tt> from their cell.
+ *  <p>
+ *    Each cell is a square large enough to hold the base Image at any
+ *    angle, centered on its pinhole.  If all the cells for the requested
+ *    number of steps would be larger than the memory limit, the number of
+ *    steps is reduced to fit.
+ *  </p>
+ *  <p>
+ *    The shared caches (see {@link #of(Image, int)}) are kept in a single
+ *    least-recently-used list, limited by the total size of their cells
+ *    (see {@link #setSharedMaxBytes(long)}).
+ *  </p>
+ */
+public class RotationCache{
+    /** Default limit on the size of the cells of one cache */
+    public static long DEFAULT_MAX_BYTES = 4L*1024*1024;
+    /** Default limit on the total size of the cells of the shared caches */
+    public static long DEFAULT_SHARED_BYTES = 16L*1024*1024;
+    
+    private Image base;
+    private int steps;
+    private int cell;
+    private Image[] sprites;
+    /** Number of cells drawn so far */
+    private int drawn;
+    /** Bytes this cache is charged in the shared list, or -1 if it is not
+     *    (or no longer) shared.  Guarded by the class lock */
+    private long charged = -1;
+    
+    /** Create a RotationCache for the given Image, with the given number
+     *    of steps (angles) around the circle */
+    public RotationCache(Image base, int steps){
+        this(base, steps, DEFAULT_MAX_BYTES);
+    }
+    /** Create a RotationCache for the given Image, with the given number
+     *    of steps (angles) around the circle, and a limit on the size
+     *    (in bytes) of its cells */
+    public RotationCache(Image base, int steps, long maxBytes){
+        if(steps < 1)
+            throw new IllegalArgumentException("RotationCache needs at least one step, got: "+steps);
+        double r = Math.max(Math.max(dist(base.leftOfPin(), base.upOfPin()),
+                                     dist(base.rightOfPin(), base.upOfPin())),
+                            Math.max(dist(base.leftOfPin(), base.downOfPin()),
+                                     dist(base.rightOfPin(), base.downOfPin())));
+        this.base = base;
+        this.cell = 2*Image.ceil(r)+2;
+        this.steps = (int)Math.max(1, Math.min(steps, maxBytes/this.cellBytes()));
+        this.sprites = new Image[this.steps];
+    }
+    private static double dist(double dx, double dy){
+        return Math.sqrt(dx*dx+dy*dy);
+    }
+    /** Size (in bytes) of a single cell */
+    private long cellBytes(){
+        return 4L*this.cell*this.cell;
+    }
+    
+    /** Return the (unrotated) base Image */
+    public Image getBase(){ return this.base; }
+    /** Return the number of angles this cache holds */
+    public int getSteps(){ return this.steps; }
+    /** Return the size (in bytes) of the cells drawn so far */
+    public synchronized long bytes(){ return this.drawn*this.cellBytes(); }
+    
+    /** Return the base Image rotated by (approximately) the given angle in
+     *    degrees, rounded to the nearest step */
+    public Image get(double ang){
+        double norm = ((ang % 360.0) + 360.0) % 360.0;
+        int i = (int)Math.round(norm*this.steps/360.0) % this.steps;
+        boolean grew = false;
+        Image sprite;
+        synchronized(this){
+            sprite = this.sprites[i];
+            if(sprite == null){
+                this.sprites[i] = sprite = this.render(i);
+                // A shared cache is charged its first cell up front
+                grew = (this.drawn++ > 0);
+            }
+        }
+        if(grew)
+            charge(this, this.cellBytes());
+        return sprite;
+    }
+    /** Draw the i<sup>th</sup> rotation into a new cell */
+    private Image render(int i){
+        BufferedImage cell = new BufferedImage(this.cell, this.cell, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = cell.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        new Rotate(this.base, i*360.0/this.steps).paint(g, this.cell/2, this.cell/2);
+        g.dispose();
+        return new Sprite(cell);
+    }
+    
+    /** Shared caches, by base Image and number of steps, least recently
+     *    used first */
+    private static LinkedHashMap<Key, RotationCache> shared =
+        new LinkedHashMap<Key, RotationCache>(16, 0.75f, true);
+    /** Total size of the cells of the shared caches, and its limit */
+    private static long sharedBytes = 0, sharedMax = DEFAULT_SHARED_BYTES;
+    
+    /** Return the shared RotationCache for the given Image and number of steps */
+    public static synchronized RotationCache of(Image base, int steps){
+        Key k = new Key(base, steps);
+        RotationCache c = shared.get(k);
+        if(c == null){
+            c = new RotationCache(base, steps);
+            shared.put(k, c);
+            c.charged = 0;
+            charge(c, c.cellBytes());
+        }
+        return c;
+    }
+    /** Add to the size of a shared cache, and remove the least recently
+     *    used caches until the total fits (a cache that is too big by
+     *    itself is not kept at all) */
+    private static synchronized void charge(RotationCache c, long bytes){
+        if(c.charged < 0)return;
+        c.charged += bytes;
+        sharedBytes += bytes;
+        Iterator<RotationCache> it = shared.values().iterator();
+        while(sharedBytes > sharedMax && !shared.isEmpty()){
+            RotationCache old = it.next();
+            it.remove();
+            sharedBytes -= old.charged;
+            old.charged = -1;
+        }
+    }
+    /** Set the limit on the total size (in bytes) of the shared caches */
+    public static synchronized void setSharedMaxBytes(long max){
+        sharedMax = max;
+        if(!shared.isEmpty())
+            charge(shared.values().iterator().next(), 0);
+    }
+    /** Return the total size (in bytes) of the shared caches */
+    public static synchronized long sharedBytes(){ return sharedBytes; }
+    /** Remove all the shared caches */
+    public static synchronized void clear(){
+        for(RotationCache c : shared.values())
+            c.charged = -1;
+        shared.clear();
+        sharedBytes = 0;
+    }
+    
+    /** Key of a shared cache */
+    private static class Key{
+        private final Image base;
+        private final int steps;
+        Key(Image base, int steps){
+            this.base = base;
+            this.steps = steps;
+        }
+        public boolean equals(Object o){
+            Key k = (Key)o;
+            return this.steps == k.steps && this.base.equals(k.base);
+        }
+        public int hashCode(){
+            return this.base.hashCode()*31+this.steps;
+        }
+    }
+    
+    /** A single (square) cell, with its pinhole at the center */
+    private static class Sprite extends Image{
+        private BufferedImage cell;
+        
+        Sprite(BufferedImage cell){
+            super(cell.getWidth()/2, cell.getHeight()/2);
+            this.cell = cell;
+        }
+        /** Draw the cell into a Graphics */
+        public void paint(Graphics g, int xx, int yy){
+            g.drawImage(this.cell, round(xx-this.pinholeX), round(yy-this.pinholeY), null);
+        }
+        /** Return the width of this Image */
+        public int width(){ return this.cell.getWidth(); }
+        /** Return the height of this Image */
+        public int height(){ return this.cell.getHeight(); }
+        
+        /** Same cell */
+        protected boolean same(Image i){
+            return this.cell == ((Sprite)i).cell;
+        }
+        protected int hash(){
+            return System.identityHashCode(this.cell);
+        }
+    }
+}
@@ -71,6 +71,16 @@ public class RoundRectangle extends Rectangle{
         this.rx = rx;
         this.ry = ry;
     }
+    /** Create a Round Rectangle with (double) width, height, and corner radius, mode and ARGB color */
+    public RoundRectangle(double width, double height, double rxy, String mode, int color){
+        this(width,height,rxy,rxy,mode,color);
+    }
+    /** Create a Round Rectangle with (double) width, height, and corner radius, mode and ARGB color */
+    public RoundRectangle(double width, double height, double rx, double ry, String mode, int color){
+        super(width,height,mode,color);
+        this.rx = rx;
+        this.ry = ry;
+    }
     /** Paint this Scene into the given graphics */
     public void paint(Graphics g, int x, int y){
         Graphics2D g2 = (Graphics2D)g;
@@ -80,4 +90,13 @@ public class RoundRectangle extends Rectangle{
         else
             g2.fill(new RoundRectangle2D.Double(x-this.pinholeX,y-this.pinholeY,this.width,this.height, this.rx, this.ry));
     }
+    
+    /** Same rectangle and corner radii */
+    protected boolean same(Image i){
+        RoundRectangle r = (RoundRectangle)i;
+        return same(this.rx, r.rx) && same(this.ry, r.ry) && super.same(i);
+    }
+    protected int hash(){
+        return (super.hash()*31+hash(this.rx))*31+hash(this.ry);
+    }
 }
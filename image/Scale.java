@@ -0,0 +1,48 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/Scale.java                                            *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package image;
+
+import java.awt.geom.AffineTransform;
+
+/** Represents an Image scaled around its pinhole by the given X and Y
+ *    multipliers.  Negative multipliers flip the Image.  The scaling is
+ *    applied when the Image is drawn, see {@link Transformed}. */
+public class Scale extends Transformed{
+    protected double sx, sy;
+    
+    /** Construct a version of the given Image scaled by the given multiplier */
+    public Scale(Image img, double s){
+        this(img, s, s);
+    }
+    /** Construct a version of the given Image scaled by the given X and Y multipliers */
+    public Scale(Image img, double sx, double sy){
+        super(img, AffineTransform.getScaleInstance(sx, sy));
+        this.sx = sx;
+        this.sy = sy;
+    }
+    /** Return the X multiplier of this Image */
+    public double getScaleX(){ return this.sx; }
+    /** Return the Y multiplier of this Image */
+    public double getScaleY(){ return this.sy; }
+}
@@ -24,6 +24,7 @@
 package image;
 import java.awt.*;
 import java.io.File;
+import java.util.concurrent.ForkJoinPool;
 import javax.imageio.ImageIO;
 
 import image.RasterImage;
@@ -88,6 +89,88 @@ public abstract class Scene extends Image{
     public Scene placeImage(Image i, int x, int y){ return new Placed(i,x,y,this); }
     /** Place another Image on top of this Scene at the given Posn */
     public Scene placeImage(Image i, Posn p){ return new Placed(i,p.x,p.y,this); }
+    /** Place another Image on top of this Scene at (x,y), with a tag (e.g.,
+     *    the game object it stands for) that is returned by {@link
+     *    #hitTag(double, double)}.  Tags do not change how the Scene is
+     *    drawn, or whether it equals another Scene. */
+    public Scene placeImage(Image i, double x, double y, Object tag){
+        return new Placed(i,x,y,this,tag);
+    }
+    /** Place another Image on top of this Scene at the given Posn, with a tag */
+    public Scene placeImage(Image i, Posn p, Object tag){ return new Placed(i,p.x,p.y,this,tag); }
+    
+    /** Return the topmost Image placed on this Scene whose bounds contain
+     *    the point (x,y), or <tt>null</tt>.  Only the images placed on this
+     *    Scene are checked (a placed Scene counts as a single image), using
+     *    an index that is built when first needed and kept with the Scene,
+     *    so mouse events need not check every image. */
+    public Image hitTest(double x, double y){
+        return null;
+    }
+    /** Return the tag of the topmost tagged Image placed on this Scene whose
+     *    bounds contain the point (x,y), or <tt>null</tt> */
+    public Object hitTag(double x, double y){
+        return null;
+    }
+
+    /** Return a flattened DisplayList of the images in this Scene.  Its
+     *    <tt>paint</tt> method reports the number of images culled
+     *    (skipped because they are outside the clip of the Graphics). */
+    public DisplayList displayList(){
+        return DisplayList.compile(this);
+    }
+
+    /** Draw this Scene into a new RasterImage by splitting it into tiles
+     *    and painting the tiles in parallel on the common fork-join pool.
+     *    Straight edges are drawn exactly as by {@link #rasterize()}, but
+     *    the anti-aliased edges of curves that cross a tile may differ
+     *    slightly, so tiling is only used when asked for. */
+    public RasterImage rasterizeTiled(){
+        return this.rasterizeTiled(TiledRenderer.TILE, ForkJoinPool.commonPool());
+    }
+    /** Draw this Scene into a new RasterImage by splitting it into square
+     *    tiles of the given size, painted in parallel by the given pool */
+    public RasterImage rasterizeTiled(int tileSize, ForkJoinPool pool){
+        return TiledRenderer.render(this, tileSize, pool);
+    }
+
+    /** Return the bounds (relative to this Scene) of the region that may
+     *    differ from the given (older) Scene.  Scenes built by placing
+     *    images on a common (or equal) Scene share the tail of their chains
+     *    of placed images, so only the images placed after the shared part
+     *    need to be compared.  An empty Rectangle is returned when nothing has changed,
+     *    and <tt>null</tt> if the two Scenes have nothing in common (i.e.,
+     *    the whole Scene should be redrawn). */
+    public java.awt.Rectangle changedFrom(Scene old){
+        Scene a = this, b = old;
+        int da = depth(a), db = depth(b);
+        java.awt.Rectangle r = new java.awt.Rectangle();
+        while(da > db){
+            r = ((Placed)a).addBounds(r);
+            a = ((Placed)a).next;
+            da--;
+        }
+        while(db > da){
+            r = ((Placed)b).addBounds(r);
+            b = ((Placed)b).next;
+            db--;
+        }
+        while(a != b && !a.equals(b)){
+            if(!(a instanceof Placed && b instanceof Placed))
+                return null;
+            r = ((Placed)a).addBounds(r);
+            r = ((Placed)b).addBounds(r);
+            a = ((Placed)a).next;
+            b = ((Placed)b).next;
+        }
+        return r;
+    }
+    /** The number of images placed on the given Scene */
+    private static int depth(Scene s){
+        if(s instanceof Placed)
+            return ((Placed)s).depth;
+        return 0;
+    }
 
     /** Add a line to this Scene from (x,y) to (xx, yy) */
     public Scene addLine(int x, int y, int xx, int yy, String color){
@@ -104,29 +187,102 @@ public abstract class Scene extends Image{
     }
     
     /** Represents an Image Placed on top of a Scene at offset X/Y */
-    private static class Placed extends Scene{
-        private Image img;
-        private double x;
-        private double y;
-        private Scene next;
+    static class Placed extends Scene{
+        Image img;
+        double x;
+        double y;
+        Scene next;
+        /** Size of the combined Scene (the size of the bottom-most Scene) */
+        private int width, height;
+        /** Number of images placed on the bottom-most Scene */
+        int depth;
+        /** Placement tag, see {@link Scene#hitTag(double, double)} */
+        Object tag;
+        /** Flattened version of this Scene, compiled when first painted */
+        DisplayList compiled;
+        /** Index of the placed images, built at the first hit test */
+        HitGrid hits;
                 
         Placed(Image img, int x, int y, Scene next){
             this(img, (double)x, y, next);
         }
         Placed(Image img, double x, double y, Scene next){
+            this(img, x, y, next, null);
+        }
+        Placed(Image img, double x, double y, Scene next, Object tag){
             this.img = img;
+            this.tag = tag;
             this.x = x;
             this.y = y;
             this.next = next;
+            this.width = next.width();
+            this.height = next.height();
+            this.depth = depth(next)+1;
+            this.hashCode();
         }
-        /** Paint the next scene, then place the image on top */
+        /** Paint the next scene, then place the image on top.  The chain
+         *    of placed images is compiled into a (cached) DisplayList
+         *    to avoid deep recursion. */
         public void paint(Graphics g, int xx, int yy){
-            this.next.paint(g,xx,yy);
-            this.img.paint(g,round(xx+this.x),round(yy+this.y));
+            this.displayList().paint(g,xx,yy);
+        }
+        /** Return the (cached) DisplayList for this Scene */
+        public DisplayList displayList(){
+            DisplayList dl = this.compiled;
+            if(dl == null)
+                this.compiled = dl = DisplayList.compile(this);
+            return dl;
+        }
+        /** Return the (cached) index of the images placed on this Scene */
+        HitGrid hitGrid(){
+            HitGrid hg = this.hits;
+            if(hg == null)
+                this.hits = hg = new HitGrid(this);
+            return hg;
+        }
+        public Image hitTest(double x, double y){
+            return this.hitGrid().image(x, y);
+        }
+        public Object hitTag(double x, double y){
+            return this.hitGrid().tag(x, y);
+        }
+        /** Return the union of the given Rectangle and the bounds of the
+         *    placed image */
+        java.awt.Rectangle addBounds(java.awt.Rectangle r){
+            int cx = round(this.x), cy = round(this.y);
+            int x0 = cx-ceil(this.img.leftOfPin())-DisplayList.MARGIN,
+                y0 = cy-ceil(this.img.upOfPin())-DisplayList.MARGIN,
+                x1 = cx+ceil(this.img.rightOfPin())+DisplayList.MARGIN,
+                y1 = cy+ceil(this.img.downOfPin())+DisplayList.MARGIN;
+            java.awt.Rectangle b = new java.awt.Rectangle(x0, y0, x1-x0+1, y1-y0+1);
+            if(r.isEmpty())
+                return b;
+            return r.union(b);
         }
         /** Calculate the width of the combined Scene/Image */
-        public int width(){ return this.next.width(); }
-        public int height(){ return this.next.height(); }
+        public int width(){ return this.width; }
+        public int height(){ return this.height; }
+        
+        /** Same images placed at the same locations, on the same Scene.
+         *    The chain is compared in a loop rather than recursively */
+        protected boolean same(Image i){
+            Placed a = this, b = (Placed)i;
+            while(same(a.x, b.x) && same(a.y, b.y) && samePart(a.img, b.img)){
+                Scene s = a.next, t = b.next;
+                if(s == t)return true;
+                if(!(s instanceof Placed) || !shallow(s, t))
+                    return s.equals(t);
+                a = (Placed)s;
+                b = (Placed)t;
+            }
+            return false;
+        }
+        /** Calculated when constructed, from the (already hashed) rest of
+         *    the chain */
+        protected int hash(){
+            int h = this.next.hashCode()*31+this.img.hashCode();
+            return (h*31+hash(this.x))*31+hash(this.y);
+        }
     }
     
     /** Save this Scene to a File */
@@ -142,5 +298,22 @@ public abstract class Scene extends Image{
             return false;
         }
     }
+    /** Save this Scene to a (PNG, PPM, or PAM) File without rasterizing
+     *    the whole Scene at once, see {@link BandWriter} */
+    public boolean toFileStreaming(String name){
+        return this.toFileStreaming(name, BandWriter.BAND);
+    }
+    /** Save this Scene to a (PNG, PPM, or PAM) File, drawing the given
+     *    number of rows at a time, see {@link BandWriter} */
+    public boolean toFileStreaming(String name, int band){
+        try{
+            BandWriter.write(this, name, band);
+            return true;
+        }catch(Exception e){
+            System.err.println("Error writing Scene: ["+e.getClass().getSimpleName()+"] "+e.toString());
+            e.printStackTrace();
+            return false;
+        }
+    }
 }
 
@@ -0,0 +1,231 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/SceneBatch.java                                       *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package image;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.Deflater;
+
+import javax.imageio.ImageIO;
+
+/** Renders many Images to files at once, without a display.  Each Image
+ *    (placed on a Scene, as with {@link Image#toFile(String)} or
+ *    {@link Image#toWhiteFile(String)}) is drawn and encoded on one of a
+ *    pool of worker threads.  Every worker keeps its own raster buffer,
+ *    which is reused (and grown as needed) for each Image it draws.  PNG,
+ *    PPM, and PAM files are written by the encoders of {@link BandWriter},
+ *    so the PNG compression level can be chosen; other formats are passed
+ *    to <tt>ImageIO</tt>.
+ *  <pre>
+ *    Map&lt;String, Image&gt; jobs = ...;
+ *    System.out.println(SceneBatch.render(jobs));</pre>
+ *  It can also be run from the command line, with the name of a class with
+ *    a static method that returns the Map of files to Images, e.g.:
+ *  <pre>
+ *    java -Djava.awt.headless=true image.SceneBatch -threads 4 -level 1 -white my.Assets.images</pre>
+ */
+public class SceneBatch{
+    /** Number of worker threads */
+    protected int threads;
+    /** PNG compression level, 0 (none) to 9 (best), or -1 for the default */
+    protected int level;
+    /** Draw Images on a white background (Scenes are drawn as they are) */
+    protected boolean white;
+    
+    /** Create a batch with a thread per processor, default compression, and
+     *    transparent backgrounds */
+    public SceneBatch(){
+        this(Runtime.getRuntime().availableProcessors(), Deflater.DEFAULT_COMPRESSION, false);
+    }
+    /** Create a batch with the given number of threads, PNG compression
+     *    level, and background */
+    public SceneBatch(int threads, int level, boolean white){
+        if(threads <= 0)
+            throw new RuntimeException("Bad Thread Count: "+threads);
+        if(level < -1 || level > 9)
+            throw new RuntimeException("Bad Compression Level: "+level);
+        this.threads = threads;
+        this.level = level;
+        this.white = white;
+    }
+    
+    /** Render all the given Images (by file name) with the default batch
+     *    settings */
+    public static Result render(Map<String, ? extends Image> jobs){
+        return new SceneBatch().write(jobs);
+    }
+    
+    /** Render each Image to its file name, returning once all are written */
+    public Result write(Map<String, ? extends Image> jobs){
+        final ThreadLocal<RasterImage> buffers = new ThreadLocal<RasterImage>();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(this.threads, Math.max(jobs.size(), 1)),
+                new ThreadFactory(){
+                    public Thread newThread(Runnable r){
+                        Thread t = new Thread(r, "SceneBatch");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        long start = System.nanoTime();
+        List<Future<?>> work = new ArrayList<Future<?>>(jobs.size());
+        List<String> names = new ArrayList<String>(jobs.size());
+        for(final Map.Entry<String, ? extends Image> job : jobs.entrySet()){
+            names.add(job.getKey());
+            work.add(pool.submit(new Runnable(){
+                public void run(){ write(job.getValue(), job.getKey(), buffers); }
+            }));
+        }
+        List<String> failed = new ArrayList<String>();
+        for(int i = 0; i < work.size(); i++){
+            try{
+                work.get(i).get();
+            }catch(Exception e){
+                Throwable t = (e.getCause() != null) ? e.getCause() : e;
+                System.err.println("Error writing "+names.get(i)+": ["+t.getClass().getSimpleName()+"] "+t.getMessage());
+                failed.add(names.get(i));
+            }
+        }
+        pool.shutdown();
+        return new Result(jobs.size(), failed, System.nanoTime()-start);
+    }
+    
+    /** Draw and encode a single Image using this thread's buffer */
+    void write(Image img, String name, ThreadLocal<RasterImage> buffers){
+        Scene scn = (img instanceof Scene) ? (Scene)img :
+                    this.white ? img.toWhiteScene() : img.toScene();
+        int w = Image.ceil(scn.width()), h = Image.ceil(scn.height());
+        RasterImage buff = buffers.get();
+        if(buff == null || buff.w < w || buff.h < h){
+            buff = new RasterImage(Math.max(w, (buff == null) ? 0 : buff.w),
+                                   Math.max(h, (buff == null) ? 0 : buff.h));
+            buffers.set(buff);
+        }else{
+            buff.fill(0, 0, w, h, 0);
+        }
+        if(SoftRenderer.isEnabled()){
+            SoftRenderer.paint(scn.displayList(), buff, Image.round(scn.pinholeX),
+                               Image.round(scn.pinholeY), new Rectangle(0, 0, w, h));
+        }else{
+            Graphics2D g = buff.getGraphics();
+            scn.displayList().paint(g, Image.round(scn.pinholeX), Image.round(scn.pinholeY),
+                                    new Rectangle(0, 0, w, h));
+            g.dispose();
+        }
+        
+        String ext = name.substring(name.lastIndexOf('.')+1).toLowerCase();
+        try{
+            if(ext.equals("png") || ext.equals("ppm") || ext.equals("pam")){
+                OutputStream out = new BufferedOutputStream(new FileOutputStream(name), 1<<16);
+                try{
+                    BandWriter.Encoder enc = BandWriter.encoder(ext, out, this.level);
+                    enc.begin(w, h);
+                    enc.rows(buff.pixels(), buff.offset(), buff.stride(), h);
+                    enc.end();
+                }finally{
+                    out.close();
+                }
+            }else if(!ImageIO.write(buff.img.getSubimage(0, 0, w, h), ext, new File(name))){
+                throw new RuntimeException("No Writer for Format: "+ext);
+            }
+        }catch(java.io.IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /** The outcome of rendering a batch of Images */
+    public static class Result{
+        /** Number of Images in the batch */
+        public final int images;
+        /** File names of the Images that could not be written */
+        public final List<String> failed;
+        /** Time taken for the whole batch, in nanoseconds */
+        public final long nanos;
+        
+        Result(int images, List<String> failed, long nanos){
+            this.images = images;
+            this.failed = Collections.unmodifiableList(failed);
+            this.nanos = nanos;
+        }
+        /** Number of Images written per second */
+        public double imagesPerSecond(){
+            return (this.images-this.failed.size())/Math.max(this.nanos/1e9, 1e-9);
+        }
+        public String toString(){
+            return String.format("%d images (%d failed) in %.3fs, %.1f images/sec",
+                    this.images, this.failed.size(), this.nanos/1e9, this.imagesPerSecond());
+        }
+    }
+    
+    /** Command line entry point:
+     *  <pre>
+     *    image.SceneBatch [-threads N] [-level 0-9] [-white] my.Class[.method]</pre>
+     *  The (static, no argument) method, by default <tt>images</tt>, must
+     *    return a Map from file names to Images. */
+    public static void main(String[] args) throws Exception{
+        int threads = Runtime.getRuntime().availableProcessors(),
+            level = Deflater.DEFAULT_COMPRESSION;
+        boolean white = false;
+        String source = null;
+        for(int i = 0; i < args.length; i++){
+            if(args[i].equals("-threads") && i+1 < args.length)threads = Integer.parseInt(args[++i]);
+            else if(args[i].equals("-level") && i+1 < args.length)level = Integer.parseInt(args[++i]);
+            else if(args[i].equals("-white"))white = true;
+            else if(source == null && !args[i].startsWith("-"))source = args[i];
+            else{ source = null; break; }
+        }
+        if(source == null){
+            System.err.println("usage: image.SceneBatch [-threads N] [-level 0-9] [-white] my.Class[.method]");
+            System.exit(1);
+        }
+        Class<?> c;
+        String meth = "images";
+        try{
+            c = Class.forName(source);
+        }catch(ClassNotFoundException e){
+            int dot = source.lastIndexOf('.');
+            c = Class.forName(source.substring(0, dot));
+            meth = source.substring(dot+1);
+        }
+        Method m = c.getMethod(meth);
+        @SuppressWarnings("unchecked")
+        Map<String, ? extends Image> jobs = (Map<String, ? extends Image>)m.invoke(null);
+        Result res = new SceneBatch(threads, level, white).write(jobs);
+        System.out.println(res);
+        System.exit(res.failed.isEmpty() ? 0 : 2);
+    }
+}
@@ -0,0 +1,187 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/Shapes.java                                           *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package image;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Factory methods for primitive shapes that return shared instances.
+ *    Images are never modified once created, so a shape with the same
+ *    size, mode and color can be reused rather than re-creating it (and
+ *    re-parsing the mode/color Strings) every time a Scene is drawn, e.g.,
+ *  <pre>
+ *    Shapes.circle(<span class='num'>20</span>, <span class='str'>"solid"</span>, <span class='str'>"red"</span>) == Shapes.circle(<span class='num'>20</span>, <span class='str'>"solid"</span>, <span class='str'>"red"</span>)</pre>
+ *  <p>
+ *    Shared shapes are only weakly held, so the ones that are no longer
+ *    used can be reclaimed by the garbage collector.  The mode and color
+ *    Strings are compared exactly (<tt>"Red"</tt> and <tt>"red"</tt> give
+ *    different, though equivalent, instances).
+ *  </p>
+ */
+public final class Shapes{
+    private Shapes(){}
+    
+    /** Kinds of shapes */
+    private static final int CIRCLE = 0, ELLIPSE = 1, RECTANGLE = 2, SQUARE = 3,
+                             TRIANGLE = 4, STAR = 5, POLYGON = 6, TEXT = 7;
+    
+    /** Shared instances */
+    private static ConcurrentHashMap<Key, Ref> table = new ConcurrentHashMap<Key, Ref>();
+    /** Shapes that have been reclaimed by the garbage collector */
+    private static ReferenceQueue<Image> reclaimed = new ReferenceQueue<Image>();
+    
+    /** Return a shared circle Image of the given radius, mode, and color */
+    public static Circle circle(double radius, String mode, String color){
+        return (Circle)intern(new Key(CIRCLE, radius, 0, 0, null, mode, color));
+    }
+    /** Return a shared ellipse Image of the given width, height, mode, and color */
+    public static Ellipse ellipse(double width, double height, String mode, String color){
+        return (Ellipse)intern(new Key(ELLIPSE, width, height, 0, null, mode, color));
+    }
+    /** Return a shared rectangle Image of the given width, height, mode, and color */
+    public static Rectangle rectangle(double width, double height, String mode, String color){
+        return (Rectangle)intern(new Key(RECTANGLE, width, height, 0, null, mode, color));
+    }
+    /** Return a shared square Image of the given size, mode, and color */
+    public static Square square(double size, String mode, String color){
+        return (Square)intern(new Key(SQUARE, size, 0, 0, null, mode, color));
+    }
+    /** Return a shared triangle Image of the given height, mode, and color */
+    public static Triangle triangle(double height, String mode, String color){
+        return (Triangle)intern(new Key(TRIANGLE, height, 0, 0, null, mode, color));
+    }
+    /** Return a shared (five pointed) star Image of the given radius, mode, and color */
+    public static Star star(double radius, String mode, String color){
+        return star(radius, 5, mode, color);
+    }
+    /** Return a shared star Image of the given radius, points, mode, and color */
+    public static Star star(double radius, int sides, String mode, String color){
+        return star(radius, radius*Star.RadScale, sides, mode, color);
+    }
+    /** Return a shared star Image of the given radius, inner-radius, points, mode, and color */
+    public static Star star(double radius, double innerRad, int sides, String mode, String color){
+        return (Star)intern(new Key(STAR, radius, innerRad, sides, null, mode, color));
+    }
+    /** Return a shared regular polygon Image of the given radius, sides, mode, and color */
+    public static RegularPolygon regularPolygon(double radius, int sides, String mode, String color){
+        return (RegularPolygon)intern(new Key(POLYGON, radius, 0, sides, null, mode, color));
+    }
+    /** Return a shared text Image of the given String, size, and color */
+    public static Text text(String str, double size, String color){
+        return (Text)intern(new Key(TEXT, size, 0, 0, str, "", color));
+    }
+    
+    /** Return the number of shared shapes currently available */
+    public static int size(){
+        purge();
+        return table.size();
+    }
+    
+    /** Find (or create) the shared shape for the given Key */
+    private static Image intern(Key k){
+        purge();
+        while(true){
+            Ref r = table.get(k);
+            if(r != null){
+                Image i = r.get();
+                if(i != null)
+                    return i;
+                table.remove(k, r);
+            }else{
+                Image i = k.make();
+                if(table.putIfAbsent(k, new Ref(k, i, reclaimed)) == null)
+                    return i;
+            }
+        }
+    }
+    /** Remove the entries of reclaimed shapes */
+    private static void purge(){
+        Object o;
+        while((o = reclaimed.poll()) != null){
+            Ref r = (Ref)o;
+            table.remove(r.key, r);
+        }
+    }
+    
+    /** The kind and attributes of a shape */
+    private static class Key{
+        final int kind;
+        final double a, b;
+        final int n;
+        final String str, mode, color;
+        
+        Key(int kind, double a, double b, int n, String str, String mode, String color){
+            this.kind = kind;
+            this.a = a;
+            this.b = b;
+            this.n = n;
+            this.str = str;
+            this.mode = mode;
+            this.color = color;
+        }
+        /** Create the shape this Key represents */
+        Image make(){
+            switch(this.kind){
+            case CIRCLE: return new Circle(this.a, this.mode, this.color);
+            case ELLIPSE: return new Ellipse(this.a, this.b, this.mode, this.color);
+            case RECTANGLE: return new Rectangle(this.a, this.b, this.mode, this.color);
+            case SQUARE: return new Square(this.a, this.mode, this.color);
+            case TRIANGLE: return new Triangle(this.a, this.mode, this.color);
+            case STAR: return new Star(this.a, this.b, this.n, this.mode, this.color);
+            case POLYGON: return new RegularPolygon(this.a, this.n, this.mode, this.color);
+            default: return new Text(this.str, this.a, this.color);
+            }
+        }
+        public boolean equals(Object o){
+            if(!(o instanceof Key))return false;
+            Key k = (Key)o;
+            return this.kind == k.kind && this.n == k.n &&
+                   Double.compare(this.a, k.a) == 0 &&
+                   Double.compare(this.b, k.b) == 0 &&
+                   this.mode.equals(k.mode) &&
+                   this.color.equals(k.color) &&
+                   (this.str == null ? k.str == null : this.str.equals(k.str));
+        }
+        public int hashCode(){
+            long a = Double.doubleToLongBits(this.a),
+                 b = Double.doubleToLongBits(this.b);
+            int h = this.kind*31+this.n;
+            h = h*31+(int)(a^(a>>>32));
+            h = h*31+(int)(b^(b>>>32));
+            h = h*31+this.mode.hashCode();
+            h = h*31+this.color.hashCode();
+            return (this.str == null) ? h : h*31+this.str.hashCode();
+        }
+    }
+    /** A weak reference to a shared shape, along with its Key */
+    private static class Ref extends WeakReference<Image>{
+        final Key key;
+        
+        Ref(Key key, Image img, ReferenceQueue<Image> q){
+            super(img, q);
+            this.key = key;
+        }
+    }
+}
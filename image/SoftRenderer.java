@@ -0,0 +1,686 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/SoftRenderer.java                                     *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package image;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/** An (opt-in) pure Java render backend.  When enabled, rasterizing and
+ *    saving Scenes draws the library's primitives ({@link Rectangle}s,
+ *    {@link Ellipse}s, {@link Line}s, {@link Triangle}s, {@link
+ *    RegularPolygon}s, {@link Star}s, and RasterImage blits) straight into
+ *    the <tt>int</tt> pixels of the result with span-filling loops, rather
+ *    than through the Java2D pipeline.  Other images (text, transformed
+ *    images, etc.) are still drawn with Java2D.
+ *  <p>
+ *    Shapes are anti-aliased using the exact area of each pixel they cover,
+ *    and blended the same way Java2D blends.  Axis aligned (integer) shapes
+ *    and opaque blits are identical to Java2D's output; other edges may
+ *    differ slightly, since Java2D samples the coverage of a pixel rather
+ *    than computing it.  On-screen drawing always uses Java2D.
+ *  </p>
+ */
+public final class SoftRenderer{
+    private static volatile boolean enabled = false;
+    
+    /** Tolerance (in pixels) when flattening curves into lines */
+    static double FLATNESS = 0.05;
+    /** Stroke outlines are drawn with, and the miter limit of joins */
+    static final double STROKE = 1.0, MITER = 10.0;
+    
+    private SoftRenderer(){}
+    
+    /** Use (or stop using) the software renderer for rasterizing Images */
+    public static void setEnabled(boolean on){
+        enabled = on;
+    }
+    /** Is the software renderer currently used? */
+    public static boolean isEnabled(){ return enabled; }
+    
+    /** Draw the given Image into the target with its pinhole at (x,y) */
+    public static void paint(Image img, RasterImage target, int x, int y){
+        paint(displayList(img), target, x, y, null);
+    }
+    /** Draw the images of a DisplayList into the target, with the root
+     *    located at (x,y), restricted to the given area (when non-null).
+     *    Like {@link DisplayList#paint(java.awt.Graphics, int, int, Rectangle)},
+     *    images outside the area are skipped.
+     *  
+     *  @return The number of images that were culled
+     */
+    public static int paint(DisplayList dl, RasterImage target, int x, int y, Rectangle area){
+        Renderer r = new Renderer(target, area);
+        try{
+            return r.paint(dl, x, y);
+        }finally{
+            r.dispose();
+        }
+    }
+    /** Return the (cached, when possible) DisplayList of an Image */
+    static DisplayList displayList(Image img){
+        if(img instanceof Scene)
+            return ((Scene)img).displayList();
+        if(img.getClass() == Overlay.class || img.getClass() == OverlayXY.class)
+            return ((Overlay)img).displayList();
+        return DisplayList.compile(img);
+    }
+    
+    /** Java2D's tables for (rounded) 8-bit multiplication and division */
+    static final byte[] MUL8 = new byte[256*256], DIV8 = new byte[256*256];
+    static{
+        for(int i = 1; i < 256; i++){
+            long inc = i*0x010101L, val = inc+(1L<<23);
+            for(int j = 1; j < 256; j++, val += inc)
+                MUL8[i<<8 | j] = (byte)(val>>>24);
+        }
+        for(int i = 1; i < 256; i++){
+            long inc = ((0xFFL<<24)+i/2)/i, val = 1L<<23;
+            for(int j = 0; j < 256; j++, val += inc)
+                DIV8[i<<8 | j] = (j < i) ? (byte)(val>>>24) : (byte)0xFF;
+        }
+    }
+    static int mul8(int a, int b){ return MUL8[a<<8 | b]&0xFF; }
+    static int div8(int v, int a){ return DIV8[a<<8 | v]&0xFF; }
+    
+    /** Draws into one RasterImage, keeping track of the current clip */
+    private static final class Renderer{
+        final RasterImage target;
+        final int[] px;
+        final int off, stride;
+        /** The area to draw in, and the current clip (x0,y0 inclusive,
+         *    x1,y1 exclusive) */
+        final int ax0, ay0, ax1, ay1;
+        int cx0, cy0, cx1, cy1;
+        /** Java2D Graphics used for other images, created when needed */
+        Graphics2D g;
+        boolean clipChanged = true;
+        
+        /** Current color, with premultiplied components */
+        int argb, sA, sR, sG, sB;
+        
+        /** Edges of the shape being drawn (x0,y0,x1,y1 each) */
+        double[] edges = new double[64];
+        int nEdges;
+        /** Coverage accumulation buffer */
+        float[] acc = new float[0];
+        /** Scratch points for polygons */
+        double[] pts = new double[32];
+        
+        Renderer(RasterImage target, Rectangle area){
+            this.target = target;
+            this.px = target.pixels();
+            this.off = target.offset();
+            this.stride = target.stride();
+            int x0 = 0, y0 = 0, x1 = target.w, y1 = target.h;
+            if(area != null){
+                x0 = Math.max(x0, area.x);
+                y0 = Math.max(y0, area.y);
+                x1 = Math.min(x1, area.x+area.width);
+                y1 = Math.min(y1, area.y+area.height);
+            }
+            this.cx0 = this.ax0 = x0;
+            this.cy0 = this.ay0 = y0;
+            this.cx1 = this.ax1 = x1;
+            this.cy1 = this.ay1 = y1;
+        }
+        void dispose(){
+            if(this.g != null)
+                this.g.dispose();
+        }
+        
+        int paint(DisplayList dl, int x, int y){
+            int culled = 0;
+            for(int i = 0; i < dl.size(); i++){
+                Image img = dl.image(i);
+                int ix = x+dl.x(i), iy = y+dl.y(i);
+                if(img instanceof Scene){
+                    this.scene((Scene)img, ix, iy);
+                }else if(ix+Image.ceil(img.rightOfPin())+DisplayList.MARGIN < this.cx0 ||
+                         ix-Image.ceil(img.leftOfPin())-DisplayList.MARGIN >= this.cx1 ||
+                         iy+Image.ceil(img.downOfPin())+DisplayList.MARGIN < this.cy0 ||
+                         iy-Image.ceil(img.upOfPin())-DisplayList.MARGIN >= this.cy1){
+                    culled++;
+                }else if(!this.draw(img, ix, iy)){
+                    this.graphics();
+                    img.paint(this.g, ix, iy);
+                }
+            }
+            return culled;
+        }
+        
+        /** Return the Java2D Graphics, clipped to the current clip */
+        Graphics2D graphics(){
+            if(this.g == null)
+                this.g = this.target.getGraphics();
+            if(this.clipChanged){
+                this.g.setClip(this.cx0, this.cy0, Math.max(0, this.cx1-this.cx0),
+                               Math.max(0, this.cy1-this.cy0));
+                this.clipChanged = false;
+            }
+            return this.g;
+        }
+        /** Set the clip, restricted to the drawing area */
+        void clip(int x0, int y0, int x1, int y1){
+            this.cx0 = Math.max(x0, this.ax0);
+            this.cy0 = Math.max(y0, this.ay0);
+            this.cx1 = Math.min(x1, this.ax1);
+            this.cy1 = Math.min(y1, this.ay1);
+            this.clipChanged = true;
+        }
+        
+        /** Draw the background of a Scene, which may set the clip */
+        void scene(Scene s, int x, int y){
+            Class<?> c = s.getClass();
+            if(c == EmptyScene.class){
+                EmptyScene e = (EmptyScene)s;
+                this.color(e.color.getRGB());
+                this.fillRect(x, y, x+e.width-1, y+e.height-1);
+                if(e.clipped){
+                    this.color(0xFF000000);
+                    this.strokeRect(x, y, x+e.width-1, y+e.height-1);
+                    this.clip(x+1, y+1, x+e.width-1, y+e.height-1);
+                }
+            }else if(c == Image.White.class){
+                this.color(0xFFFFFFFF);
+                this.fillRect(x, y, x+s.width()+1, y+s.height()+1);
+            }else if(c != Image.MT.class){
+                Graphics2D g = this.graphics();
+                s.paint(g, x, y);
+                Rectangle r = g.getClipBounds();
+                if(r == null)
+                    this.clip(this.ax0, this.ay0, this.ax1, this.ay1);
+                else
+                    this.clip(r.x, r.y, r.x+r.width, r.y+r.height);
+            }
+        }
+        
+        /** Draw one of the primitives we know, return false for others */
+        boolean draw(Image img, int x, int y){
+            Class<?> c = img.getClass();
+            if(c == image.Rectangle.class || c == Square.class){
+                image.Rectangle r = (image.Rectangle)img;
+                if(r.width < 1 || r.height < 1)
+                    return false;
+                this.color(r.color.getRGB());
+                double x0 = x-r.width/2, y0 = y-r.height/2;
+                if(r.mode == Image.OUTLINE)
+                    this.strokeRect(x0, y0, x0+r.width-1, y0+r.height-1);
+                else
+                    this.fillRect(x0, y0, x0+r.width-1, y0+r.height-1);
+            }else if(c == Ellipse.class || c == Circle.class){
+                Ellipse e = (Ellipse)img;
+                this.color(e.color.getRGB());
+                if(e.mode == Image.OUTLINE)
+                    this.strokeEllipse(x-e.pinholeX, y-e.pinholeY, e.width, e.height);
+                else
+                    this.fillEllipse(x-e.pinholeX, y-e.pinholeY, e.width, e.height);
+            }else if(c == Line.class){
+                Line l = (Line)img;
+                this.color(l.color.getRGB());
+                if(l.y >= 0)
+                    this.strokeLine(x-l.pinholeX, y-l.pinholeY, x+l.pinholeX, y+l.pinholeY);
+                else
+                    this.strokeLine(x-l.pinholeX, y+l.pinholeY, x+l.pinholeX, y-l.pinholeY);
+            }else if(c == Triangle.class){
+                Triangle t = (Triangle)img;
+                this.color(t.color.getRGB());
+                double h = t.height/2;
+                this.points(0, x, y-h);
+                this.points(1, x+h, y+h);
+                this.points(2, x-h, y+h);
+                if(t.mode == Image.OUTLINE)
+                    this.strokePolygon(3);
+                else
+                    this.fillPolygon(3);
+            }else if(c == RegularPolygon.class || c == Star.class){
+                RegularPolygon r = (RegularPolygon)img;
+                this.color(r.color.getRGB());
+                int n = r.poly.npoints;
+                for(int i = 0; i < n; i++)
+                    this.points(i, x+r.poly.xpoints[i], y+r.poly.ypoints[i]);
+                if(r.mode == Image.OUTLINE)
+                    this.strokePolygon(n);
+                else
+                    this.fillPolygon(n);
+            }else if(c == RasterImage.class || c == FromFile.class ||
+                     c == FromURL.class || c == FromResource.class){
+                RasterImage r = (RasterImage)img;
+                return this.blit(r.img, Image.round(x-r.pinholeX), Image.round(y-r.pinholeY));
+            }else{
+                return false;
+            }
+            return true;
+        }
+        
+        /** Set the current color */
+        void color(int argb){
+            this.argb = argb;
+            int a = argb>>>24, r = (argb>>16)&0xFF, g = (argb>>8)&0xFF, b = argb&0xFF;
+            if(a != 0xFF){
+                r = mul8(a, r);
+                g = mul8(a, g);
+                b = mul8(a, b);
+            }
+            this.sA = a;
+            this.sR = r;
+            this.sG = g;
+            this.sB = b;
+        }
+        
+        /** Blend the current color into pixel i with the given coverage */
+        void blend(int i, int pathA){
+            if(pathA == 0xFF && this.sA == 0xFF){
+                this.px[i] = this.argb;
+                return;
+            }
+            if(pathA == 0xFF)
+                this.over(i, this.sA, this.sR, this.sG, this.sB);
+            else
+                this.over(i, mul8(pathA, this.sA), mul8(pathA, this.sR),
+                          mul8(pathA, this.sG), mul8(pathA, this.sB));
+        }
+        /** Source-over composite (premultiplied) color into pixel i, the
+         *    way Java2D does for (non-premultiplied) ARGB buffers */
+        void over(int i, int a, int r, int g, int b){
+            if(a != 0xFF){
+                int d = this.px[i],
+                    dA = mul8(0xFF-a, d>>>24);
+                a += dA;
+                if(dA != 0){
+                    int dR = (d>>16)&0xFF, dG = (d>>8)&0xFF, dB = d&0xFF;
+                    if(dA != 0xFF){
+                        dR = mul8(dA, dR);
+                        dG = mul8(dA, dG);
+                        dB = mul8(dA, dB);
+                    }
+                    r += dR;
+                    g += dG;
+                    b += dB;
+                }
+                if(a != 0 && a < 0xFF){
+                    r = div8(r, a);
+                    g = div8(g, a);
+                    b = div8(b, a);
+                }
+            }
+            this.px[i] = a<<24 | r<<16 | g<<8 | b;
+        }
+        
+        /** Fill the (axis aligned) rectangle from (x0,y0) to (x1,y1), with
+         *    the exact coverage of the edge pixels */
+        void fillRect(double x0, double y0, double x1, double y1){
+            if(this.sA == 0 || x1 <= x0 || y1 <= y0)
+                return;
+            int l = Math.max((int)Math.floor(x0), this.cx0), r = Math.min((int)Math.ceil(x1), this.cx1),
+                t = Math.max((int)Math.floor(y0), this.cy0), b = Math.min((int)Math.ceil(y1), this.cy1);
+            if(l >= r || t >= b)
+                return;
+            // Columns [il,ir) are fully covered, so each row is (at most)
+            //   a partial pixel, a span, and another partial pixel
+            int il = Math.min(Math.max((int)Math.ceil(x0), l), r),
+                ir = Math.min(Math.max((int)Math.floor(x1), il), r);
+            double lc = Math.min(l+1, x1)-Math.max(l, x0),
+                   rc = Math.min(r, x1)-Math.max(r-1, x0);
+            boolean solid = (this.sA == 0xFF);
+            for(int y = t; y < b; y++){
+                double cy = Math.min(y+1, y1)-Math.max(y, y0);
+                int row = this.off+y*this.stride, x = l;
+                for(; x < il; x++)
+                    this.partial(row+x, ((x == r-1) ? Math.min(lc, rc) : lc)*cy);
+                if(cy == 1 && solid){
+                    for(int i = row+x, e = row+ir; i < e; i++)
+                        this.px[i] = this.argb;
+                }else{
+                    int a = (int)(cy*255+0.5);
+                    if(a > 0)
+                        for(int i = row+x, e = row+ir; i < e; i++)
+                            this.blend(i, a);
+                }
+                for(x = ir; x < r; x++)
+                    this.partial(row+x, rc*cy);
+            }
+        }
+        /** Blend the current color into pixel i with the given coverage */
+        void partial(int i, double cov){
+            int a = (int)(cov*255+0.5);
+            if(a > 0)
+                this.blend(i, a);
+        }
+        
+        /** Set the i<sup>th</sup> scratch point */
+        void points(int i, double x, double y){
+            if(2*i+2 > this.pts.length)
+                this.pts = Arrays.copyOf(this.pts, Math.max(2*i+2, 2*this.pts.length));
+            this.pts[2*i] = x;
+            this.pts[2*i+1] = y;
+        }
+        /** Fill the polygon of the first n scratch points */
+        void fillPolygon(int n){
+            double[] p = this.pts;
+            this.nEdges = 0;
+            for(int i = 0, j = n-1; i < n; j = i++)
+                this.edge(p[2*j], p[2*j+1], p[2*i], p[2*i+1]);
+            this.rasterize();
+        }
+        
+        /** Fill an ellipse (given its bounds) */
+        void fillEllipse(double x, double y, double w, double h){
+            this.nEdges = 0;
+            this.ellipse(x+w/2, y+h/2, w/2, h/2, false);
+            this.rasterize();
+        }
+        /** Add the edges of an ellipse, flattened into enough segments to be
+         *    within FLATNESS of the curve, in either direction */
+        void ellipse(double cx, double cy, double rx, double ry, boolean reverse){
+            int n = (int)Math.ceil(Math.PI*Math.sqrt(Math.max(rx, ry)/(2*FLATNESS)));
+            n = Math.max(8, Math.min(n, 1<<12));
+            double lx = cx+rx, ly = cy, step = (reverse ? -2 : 2)*Math.PI/n;
+            for(int i = 1; i <= n; i++){
+                double ex = (i == n) ? cx+rx : cx+rx*Math.cos(i*step),
+                       ey = (i == n) ? cy : cy+ry*Math.sin(i*step);
+                this.edge(lx, ly, ex, ey);
+                lx = ex;
+                ly = ey;
+            }
+        }
+        
+        /** Draw the outline of a rectangle from (x0,y0) to (x1,y1).  Like
+         *    Java2D, the points of outlines are moved to the nearest pixel
+         *    centers, so the edges of rectangles are solid lines of pixels. */
+        void strokeRect(double x0, double y0, double x1, double y1){
+            int l = (int)Math.floor(x0), t = (int)Math.floor(y0),
+                r = (int)Math.floor(x1), b = (int)Math.floor(y1);
+            this.fillRect(l, t, r+1, t+1);
+            if(b > t)
+                this.fillRect(l, b, r+1, b+1);
+            if(b > t+1){
+                this.fillRect(l, t+1, l+1, b);
+                if(r > l)
+                    this.fillRect(r, t+1, r+1, b);
+            }
+        }
+        /** Draw a (1 pixel, square capped) line between the two points, which
+         *    are moved to the nearest pixel centers */
+        void strokeLine(double x0, double y0, double x1, double y1){
+            this.points(0, Math.floor(x0)+0.5, Math.floor(y0)+0.5);
+            this.points(1, Math.floor(x1)+0.5, Math.floor(y1)+0.5);
+            this.nEdges = 0;
+            this.polyline(2, false);
+            this.rasterize();
+        }
+        /** Draw the outline of the polygon of the first n scratch points,
+         *    which are moved to the nearest pixel centers */
+        void strokePolygon(int n){
+            for(int i = 0; i < 2*n; i++)
+                this.pts[i] = Math.floor(this.pts[i])+0.5;
+            this.nEdges = 0;
+            this.polyline(n, true);
+            this.rasterize();
+        }
+        /** Draw the outline of an ellipse (given its bounds, which are
+         *    moved to the nearest pixel centers) as the ring between two
+         *    ellipses a pixel apart */
+        void strokeEllipse(double x, double y, double w, double h){
+            double x0 = Math.floor(x)+0.5, y0 = Math.floor(y)+0.5,
+                   x1 = Math.floor(x+w)+0.5, y1 = Math.floor(y+h)+0.5,
+                   rx = (x1-x0)/2, ry = (y1-y0)/2;
+            this.nEdges = 0;
+            this.ellipse(x0+rx, y0+ry, rx+STROKE/2, ry+STROKE/2, false);
+            if(rx > STROKE/2 && ry > STROKE/2)
+                this.ellipse(x0+rx, y0+ry, rx-STROKE/2, ry-STROKE/2, true);
+            this.rasterize();
+        }
+        
+        /** Add the stroke of the first n points, with joins between the
+         *    segments and square caps on the ends of open lines */
+        void polyline(int n, boolean closed){
+            double[] p = this.pts;
+            // Drop repeated points
+            int m = (n > 0) ? 1 : 0;
+            for(int i = 1; i < n; i++){
+                if(p[2*i] != p[2*m-2] || p[2*i+1] != p[2*m-1]){
+                    p[2*m] = p[2*i];
+                    p[2*m+1] = p[2*i+1];
+                    m++;
+                }
+            }
+            n = m;
+            if(closed && n > 1 && p[0] == p[2*n-2] && p[1] == p[2*n-1])
+                n--;
+            double hw = STROKE/2;
+            if(n == 1 && !closed){
+                // A degenerate line is just its square caps
+                this.quad(p[0]-hw, p[1]-hw, p[0]+hw, p[1]-hw,
+                          p[0]+hw, p[1]+hw, p[0]-hw, p[1]+hw);
+                return;
+            }
+            if(n < 2)
+                return;
+            int segs = closed ? n : n-1;
+            for(int i = 0; i < segs; i++){
+                int j = (i+1)%n;
+                double x0 = p[2*i], y0 = p[2*i+1], x1 = p[2*j], y1 = p[2*j+1],
+                       len = Math.hypot(x1-x0, y1-y0),
+                       dx = (x1-x0)/len*hw, dy = (y1-y0)/len*hw;
+                if(!closed && i == 0){
+                    x0 -= dx;
+                    y0 -= dy;
+                }
+                if(!closed && i == segs-1){
+                    x1 += dx;
+                    y1 += dy;
+                }
+                this.quad(x0-dy, y0+dx, x1-dy, y1+dx, x1+dy, y1-dx, x0+dy, y0-dx);
+            }
+            for(int i = closed ? 0 : 1; i < (closed ? n : n-1); i++){
+                int h = (i+n-1)%n, j = (i+1)%n;
+                double vx = p[2*i], vy = p[2*i+1],
+                       ax = vx-p[2*h], ay = vy-p[2*h+1], la = Math.hypot(ax, ay),
+                       bx = p[2*j]-vx, by = p[2*j+1]-vy, lb = Math.hypot(bx, by);
+                ax /= la; ay /= la;
+                bx /= lb; by /= lb;
+                double cross = ax*by-ay*bx, dot = ax*bx+ay*by;
+                if(Math.abs(cross) < 1e-9 && dot > 0)
+                    continue;
+                // Offsets to the outside of the turn
+                double side = (cross > 0) ? -hw : hw,
+                       oax = -ay*side, oay = ax*side, obx = -by*side, oby = bx*side;
+                // Miter length (relative to the stroke width) is 1/sin(angle/2)
+                double sinHalf = Math.sqrt(Math.max(0, (1+dot)/2));
+                if(sinHalf > 1/MITER && dot > -1){
+                    double mx = vx+(oax+obx)/(1+dot), my = vy+(oay+oby)/(1+dot);
+                    this.quad(vx, vy, vx+oax, vy+oay, mx, my, vx+obx, vy+oby);
+                }else{
+                    this.quad(vx, vy, vx+oax, vy+oay, vx+obx, vy+oby, vx+obx, vy+oby);
+                }
+            }
+        }
+        /** Add a (convex) quadrilateral, oriented so that overlapping pieces
+         *    of a stroke add up, rather than cancel */
+        void quad(double x0, double y0, double x1, double y1,
+                  double x2, double y2, double x3, double y3){
+            double area = (x1-x0)*(y2-y0)-(x2-x0)*(y1-y0)+
+                          (x2-x0)*(y3-y0)-(x3-x0)*(y2-y0);
+            if(area < 0){
+                this.edge(x0, y0, x3, y3);
+                this.edge(x3, y3, x2, y2);
+                this.edge(x2, y2, x1, y1);
+                this.edge(x1, y1, x0, y0);
+            }else{
+                this.edge(x0, y0, x1, y1);
+                this.edge(x1, y1, x2, y2);
+                this.edge(x2, y2, x3, y3);
+                this.edge(x3, y3, x0, y0);
+            }
+        }
+        void edge(double x0, double y0, double x1, double y1){
+            if(y0 == y1)
+                return;
+            if(4*this.nEdges+4 > this.edges.length)
+                this.edges = Arrays.copyOf(this.edges, this.edges.length*2);
+            int k = 4*this.nEdges++;
+            this.edges[k] = x0;
+            this.edges[k+1] = y0;
+            this.edges[k+2] = x1;
+            this.edges[k+3] = y1;
+        }
+        
+        /** Fill the current edges: the signed area each edge covers is added
+         *    to the pixels it crosses, then each row is summed from the left,
+         *    giving the coverage of each pixel. */
+        void rasterize(){
+            int n = this.nEdges;
+            if(n == 0 || this.sA == 0)
+                return;
+            double[] e = this.edges;
+            double minX = e[0], maxX = e[0], minY = e[1], maxY = e[1];
+            for(int k = 0; k < 4*n; k += 2){
+                minX = Math.min(minX, e[k]);
+                maxX = Math.max(maxX, e[k]);
+                minY = Math.min(minY, e[k+1]);
+                maxY = Math.max(maxY, e[k+1]);
+            }
+            int ox = (int)Math.floor(minX),
+                top = Math.max((int)Math.floor(minY), this.cy0),
+                bot = Math.min((int)Math.ceil(maxY), this.cy1),
+                left = Math.max(ox, this.cx0),
+                right = Math.min((int)Math.ceil(maxX)+1, this.cx1);
+            if(top >= bot || left >= right)
+                return;
+            int w = (int)Math.ceil(maxX)-ox+2, h = bot-top;
+            if(this.acc.length < w*h)
+                this.acc = new float[Math.max(w*h, this.acc.length*2)];
+            float[] a = this.acc;
+            for(int k = 0; k < 4*n; k += 4)
+                line(a, w, h, e[k]-ox, e[k+1]-top, e[k+2]-ox, e[k+3]-top);
+            
+            for(int y = 0; y < h; y++){
+                int i = y*w, row = this.off+(top+y)*this.stride+ox;
+                float sum = 0;
+                for(int x = 0; x < w; x++, i++){
+                    sum += a[i];
+                    a[i] = 0;
+                    if(x+ox < left || x+ox >= right)
+                        continue;
+                    float cov = Math.abs(sum);
+                    if(cov >= 0.998f){
+                        this.blend(row+x, 0xFF);
+                    }else{
+                        int al = (int)(cov*255+0.5f);
+                        if(al > 0)
+                            this.blend(row+x, al);
+                    }
+                }
+            }
+        }
+        
+        /** Blit the pixels of an (int ARGB or RGB) image at (x,y) */
+        boolean blit(BufferedImage img, int x, int y){
+            int type = img.getType();
+            if(type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_RGB)
+                return false;
+            WritableRaster r = img.getRaster();
+            int w = img.getWidth(), h = img.getHeight(),
+                stride = ((SinglePixelPackedSampleModel)r.getSampleModel()).getScanlineStride(),
+                off = r.getDataBuffer().getOffset()+
+                      ((SinglePixelPackedSampleModel)r.getSampleModel()).getOffset(
+                              -r.getSampleModelTranslateX(), -r.getSampleModelTranslateY());
+            int[] src = ((DataBufferInt)r.getDataBuffer()).getData();
+            int l = Math.max(x, this.cx0), t = Math.max(y, this.cy0),
+                rt = Math.min(x+w, this.cx1), b = Math.min(y+h, this.cy1);
+            boolean opaque = (type == BufferedImage.TYPE_INT_RGB);
+            for(int yy = t; yy < b; yy++){
+                int s = off+(yy-y)*stride+(l-x), d = this.off+yy*this.stride+l;
+                if(opaque){
+                    for(int xx = l; xx < rt; xx++)
+                        this.px[d++] = src[s++] | 0xFF000000;
+                    continue;
+                }
+                for(int xx = l; xx < rt; xx++, s++, d++){
+                    int p = src[s], sa = p>>>24;
+                    if(sa == 0xFF)
+                        this.px[d] = p;
+                    else if(sa != 0)
+                        this.over(d, sa, mul8(sa, (p>>16)&0xFF), mul8(sa, (p>>8)&0xFF), mul8(sa, p&0xFF));
+                }
+            }
+            return true;
+        }
+    }
+    
+    /** Add the signed area an edge covers in each pixel to the accumulation
+     *    buffer (w by h, the edge is relative to its top-left) */
+    static void line(float[] a, int w, int h, double x0, double y0, double x1, double y1){
+        double dir = 1;
+        if(y0 > y1){
+            double t = x0; x0 = x1; x1 = t;
+            t = y0; y0 = y1; y1 = t;
+            dir = -1;
+        }
+        double dxdy = (x1-x0)/(y1-y0), x = x0, max = w-2;
+        if(y0 < 0)
+            x -= y0*dxdy;
+        // Keep rounding errors from stepping outside the buffer
+        x = Math.max(0, Math.min(x, max));
+        int end = Math.min(h, (int)Math.ceil(y1));
+        for(int y = Math.max(0, (int)Math.floor(y0)); y < end; y++){
+            int line = y*w;
+            double dy = Math.min(y+1, y1)-Math.max(y, y0),
+                   xnext = Math.max(0, Math.min(x+dxdy*dy, max)),
+                   d = dy*dir,
+                   xa = Math.min(x, xnext), xb = Math.max(x, xnext),
+                   xaf = Math.floor(xa), xbc = Math.ceil(xb);
+            int ia = (int)xaf, ib = (int)xbc;
+            if(ib <= ia+1){
+                double xm = 0.5*(x+xnext)-xaf;
+                a[line+ia] += d-d*xm;
+                a[line+ia+1] += d*xm;
+            }else{
+                double s = 1/(xb-xa),
+                       fa = xa-xaf,
+                       a0 = 0.5*s*(1-fa)*(1-fa),
+                       fb = xb-xbc+1,
+                       am = 0.5*s*fb*fb;
+                a[line+ia] += d*a0;
+                if(ib == ia+2){
+                    a[line+ia+1] += d*(1-a0-am);
+                }else{
+                    double a1 = s*(1.5-fa);
+                    a[line+ia+1] += d*(a1-a0);
+                    for(int i = ia+2; i < ib-1; i++)
+                        a[line+i] += d*s;
+                    double a2 = a1+(ib-ia-3)*s;
+                    a[line+ib-1] += d*(1-a2-am);
+                }
+                a[line+ib] += d*am;
+            }
+            x = xnext;
+        }
+    }
+}
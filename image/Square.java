@@ -56,4 +56,8 @@ public class Square extends Rectangle{
     public Square(int size, String mode, String color){
         super(size,size,mode,color);
     }
+    /** Create a Square Image with (double) size, mode and ARGB color */
+    public Square(double size, String mode, int color){
+        super(round(size),round(size),mode,color);
+    }
 }
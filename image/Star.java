@@ -56,7 +56,7 @@ import java.awt.Polygon;
  * 
  */
 public class Star extends RegularPolygon{
-    private static double RadScale = 0.4;
+    static double RadScale = 0.4;
     
     /** Create a Star Image with (double) radius, mode and color */
     public Star(double radius, String mode, String color){
@@ -82,10 +82,26 @@ public class Star extends RegularPolygon{
     public Star(int radius, int innerRad, int sides, String mode, String color){
         this(radius,innerRad,sides,mode(mode),color(color));
     }
+    /** Create a Star Image with (double) radius, mode and ARGB color */
+    public Star(double radius, String mode, int color){
+        this(radius,radius*RadScale,5,mode,color);
+    }
+    /** Create a Star Image with (double) radius, sides, mode and ARGB color */
+    public Star(double radius, int sides, String mode, int color){
+        this(radius,radius*RadScale,sides,mode,color);
+    }
+    /** Create a Star Image with (double) radius, inner-radius, sides, mode and ARGB color */
+    public Star(double radius, double innerRad, int sides, String mode, int color){
+        this(round(radius),round(innerRad),sides,mode(mode),color(color));
+    }
     /** Create a Star with converted mode and color */
     protected Star(int radius, int innerRad, int sides, int mode, Color color){
         super(make(radius, innerRad, sides), mode, color);
     }
+    /** Create a Star from its (centered) points, see {@link ImageCodec} */
+    Star(Polygon poly, int mode, Color color){
+        super(poly, mode, color);
+    }
     private static Polygon make(int radius, double inrad, int sides){
         Polygon poly = new Polygon();
         double first = 3*Math.PI/2,
@@ -24,7 +24,6 @@
 package image;
 
 import java.awt.*;
-import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 
 /** 
@@ -51,13 +50,6 @@ import java.awt.image.BufferedImage;
  * 
  */
 public class Text extends Image{
-    static Graphics2D context;
-    static{
-        context = (Graphics2D)(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB).getGraphics());
-        context.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        context.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
-    }
-    
     Font font;
     protected String str;
     protected int size;
@@ -66,18 +58,24 @@ public class Text extends Image{
     
     /** Construct a text Image of the given String, size, and color */
     public Text(String str, int size, String color){
+        this(str, size, color(color));
+    }
+    /** Construct a text Image of the given String, size, and ARGB color */
+    public Text(String str, double size, int color){
+        this(str, round(size), color(color));
+    }
+    /** Construct a text Image with a converted color */
+    private Text(String str, int size, Color color){
         super(0,0);
         this.str = str;
         this.size = size;
-        this.color = color(color);
-        this.font = new Font(Font.SERIF, Font.PLAIN, size);
-        Rectangle2D rect = this.font.getStringBounds(str, context.getFontRenderContext());
-        this.width = round(rect.getWidth());
-        java.awt.font.LineMetrics lm = this.font.getLineMetrics(str, context.getFontRenderContext());
-        this.height = Math.abs(lm.getAscent())+Math.abs(lm.getDescent());
+        this.color = color;
+        this.font = TextCache.font(Font.SERIF, Font.PLAIN, size);
+        TextCache.Metrics m = TextCache.metrics(this.font, str);
+        this.width = round(m.width);
+        this.height = m.ascent+m.descent;
         this.pinholeX = round(this.width/2);
-        this.pinholeY = Math.abs(lm.getAscent());
-        
+        this.pinholeY = m.ascent;
     }
     /** Construct a text Image of the given String, size, and color */
     public Text(String str, double size, String color){
@@ -85,6 +83,12 @@ public class Text extends Image{
     }
     /** Paint this Image into the given graphics */
     public void paint(Graphics g, int x, int y){
+        BufferedImage r = TextCache.raster(this);
+        if(r != null){
+            g.drawImage(r, round(x-this.pinholeX)-TextCache.padding(),
+                        y-ceil(this.pinholeY)-TextCache.padding(), null);
+            return;
+        }
         g.setColor(this.color);
         g.setFont(this.font);
         g.drawString(this.str, round(x-this.pinholeX), round(y));
@@ -93,4 +97,13 @@ public class Text extends Image{
     public int width(){ return round(this.width); }
     /** Return the Height of this Image */
     public int height(){ return round(this.height); }
+    
+    /** Same string, font, and color */
+    protected boolean same(Image i){
+        Text t = (Text)i;
+        return this.str.equals(t.str) && this.font.equals(t.font) && this.color.equals(t.color);
+    }
+    protected int hash(){
+        return (this.str.hashCode()*31+this.font.hashCode())*31+this.color.hashCode();
+    }
 }
@@ -0,0 +1,211 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/TextCache.java                                        *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package image;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Shared caches for {@link Text} Images: <tt>Font</tt>s, the measured
+ *    sizes of Strings, and (optionally) a glyph atlas of rasterized
+ *    Strings.  Text is measured with a fixed (immutable)
+ *    <tt>FontRenderContext</tt> rather than a shared <tt>Graphics</tt>, so
+ *    Text Images can safely be created from several threads at once.
+ *  <p>
+ *    When the glyph atlas is enabled (see {@link #setAtlasEnabled(boolean)}),
+ *    Strings that are drawn several times with the same font and color are
+ *    rendered once into a raster, and later drawn with a single
+ *    <tt>drawImage</tt>.
+ *  </p>
+ */
+public final class TextCache{
+    private TextCache(){}
+    
+    /** Context for measuring text: anti-aliased, with integer metrics */
+    private static FontRenderContext frc = new FontRenderContext(null, true, false);
+    
+    /** Maximum number of measured Strings kept before the cache is flushed */
+    private static int MAX_METRICS = 4096;
+    /** Maximum number of Strings kept in the glyph atlas */
+    private static int MAX_GLYPHS = 256;
+    /** Number of times a String must be drawn before it is rasterized */
+    private static int GLYPH_THRESHOLD = 3;
+    /** Space around rasterized Strings, for glyphs that overhang their bounds */
+    private static int PAD = 2;
+    
+    private static ConcurrentHashMap<FontKey, Font> fonts = new ConcurrentHashMap<FontKey, Font>();
+    private static ConcurrentHashMap<TextKey, Metrics> metrics = new ConcurrentHashMap<TextKey, Metrics>();
+    
+    private static volatile boolean atlas = false;
+    /** Rasterized Strings (and use counts) in least-recently used order */
+    private static LinkedHashMap<TextKey, Glyphs> glyphs = new LinkedHashMap<TextKey, Glyphs>(64, 0.75f, true);
+    
+    /** Return the (shared) Font with the given family, style, and size */
+    public static Font font(String family, int style, int size){
+        FontKey k = new FontKey(family, style, size);
+        Font f = fonts.get(k);
+        if(f == null){
+            f = new Font(family, style, size);
+            Font old = fonts.putIfAbsent(k, f);
+            if(old != null)f = old;
+        }
+        return f;
+    }
+    
+    /** Measure the given String in the given Font */
+    static Metrics metrics(Font font, String str){
+        TextKey k = new TextKey(font, str, null);
+        Metrics m = metrics.get(k);
+        if(m == null){
+            m = new Metrics(font, str);
+            if(metrics.size() >= MAX_METRICS)
+                metrics.clear();
+            metrics.put(k, m);
+        }
+        return m;
+    }
+    
+    /** Turn the glyph atlas on or off.  Turning it off also clears it. */
+    public static void setAtlasEnabled(boolean on){
+        atlas = on;
+        if(!on)
+            synchronized(glyphs){ glyphs.clear(); }
+    }
+    /** Is the glyph atlas currently enabled? */
+    public static boolean isAtlasEnabled(){ return atlas; }
+    
+    /** Return the rasterized version of the given Text, or null if it
+     *    hasn't been drawn often enough (or the atlas is disabled) */
+    static BufferedImage raster(Text t){
+        if(!atlas)return null;
+        TextKey k = new TextKey(t.font, t.str, t.color);
+        Glyphs gs;
+        synchronized(glyphs){
+            gs = glyphs.get(k);
+            if(gs == null){
+                glyphs.put(k, gs = new Glyphs());
+                Iterator<Glyphs> i = glyphs.values().iterator();
+                while(glyphs.size() > MAX_GLYPHS && i.hasNext()){
+                    i.next();
+                    i.remove();
+                }
+            }
+            if(gs.raster != null)
+                return gs.raster;
+            if(++gs.uses < GLYPH_THRESHOLD)
+                return null;
+        }
+        BufferedImage r = render(t);
+        synchronized(glyphs){ gs.raster = r; }
+        return r;
+    }
+    /** Return the X offset of rasterized Strings, relative to the left of the Text */
+    static int padding(){ return PAD; }
+    
+    /** Draw the given Text into a new (transparent) raster */
+    private static BufferedImage render(Text t){
+        int asc = Image.ceil(t.pinholeY);
+        BufferedImage r = new BufferedImage(t.width()+2*PAD, asc+Image.ceil(t.height-t.pinholeY)+2*PAD,
+                                            BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = r.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.setColor(t.color);
+        g.setFont(t.font);
+        g.drawString(t.str, PAD, PAD+asc);
+        g.dispose();
+        return r;
+    }
+    
+    /** Measured size of a String in a Font */
+    static class Metrics{
+        final double width;
+        final double ascent;
+        final double descent;
+        
+        Metrics(Font font, String str){
+            Rectangle2D rect = font.getStringBounds(str, frc);
+            LineMetrics lm = font.getLineMetrics(str, frc);
+            this.width = rect.getWidth();
+            this.ascent = Math.abs(lm.getAscent());
+            this.descent = Math.abs(lm.getDescent());
+        }
+    }
+    /** A rasterized String, and the number of times it has been drawn */
+    private static class Glyphs{
+        int uses = 0;
+        BufferedImage raster;
+    }
+    
+    /** Font cache key */
+    private static class FontKey{
+        final String family;
+        final int style, size;
+        
+        FontKey(String family, int style, int size){
+            this.family = family;
+            this.style = style;
+            this.size = size;
+        }
+        public boolean equals(Object o){
+            if(!(o instanceof FontKey))return false;
+            FontKey k = (FontKey)o;
+            return this.style == k.style && this.size == k.size && this.family.equals(k.family);
+        }
+        public int hashCode(){
+            return (this.family.hashCode()*31+this.style)*31+this.size;
+        }
+    }
+    /** Metrics/Glyph cache key: a Font, String, and (possibly null) Color */
+    private static class TextKey{
+        final Font font;
+        final String str;
+        final Color color;
+        
+        TextKey(Font font, String str, Color color){
+            this.font = font;
+            this.str = str;
+            this.color = color;
+        }
+        public boolean equals(Object o){
+            if(!(o instanceof TextKey))return false;
+            TextKey k = (TextKey)o;
+            return this.font.equals(k.font) && this.str.equals(k.str) &&
+                   (this.color == null ? k.color == null : this.color.equals(k.color));
+        }
+        public int hashCode(){
+            int h = this.font.hashCode()*31+this.str.hashCode();
+            return (this.color == null) ? h : h*31+this.color.hashCode();
+        }
+    }
+}
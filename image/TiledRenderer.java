@@ -0,0 +1,100 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/TiledRenderer.java                                    *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package image;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/** Rasterizes (large) Scenes by splitting the result into square tiles and
+ *    painting the Scene into each tile on the threads of a fork-join pool.
+ *    Tiles are painted directly into the final result, clipped to the bounds
+ *    of the tile, so there is nothing to stitch together once they are
+ *    finished.  Drawing is never translated (Java2D rounds translated
+ *    coordinates differently), so the result is the same as painting the
+ *    whole Scene on a single thread, except that Java2D may anti-alias the
+ *    edges of curves clipped to a tile slightly differently (see
+ *    <tt>image.test.TiledTests</tt>). */
+class TiledRenderer{
+    /** Default width/height of a tile */
+    static final int TILE = 256;
+    
+    private TiledRenderer(){}
+    
+    /** Draw the given Scene into a new RasterImage, using tiles of the
+     *    given size, painted by the given pool */
+    static RasterImage render(Scene scn, int tile, ForkJoinPool pool){
+        if(tile <= 0)
+            throw new RuntimeException("Bad Tile Size: "+tile);
+        final RasterImage rast = new RasterImage(Image.ceil(scn.width()), Image.ceil(scn.height()));
+        final int px = Image.round(scn.pinholeX), py = Image.round(scn.pinholeY);
+        // Compile the Scene once, the tiles only ever read the list
+        final DisplayList dl = scn.displayList();
+        
+        final List<RecursiveAction> tiles = new ArrayList<RecursiveAction>();
+        for(int ty = 0; ty < rast.h; ty += tile){
+            for(int tx = 0; tx < rast.w; tx += tile){
+                final int x = tx, y = ty,
+                    w = Math.min(tile, rast.w-tx), h = Math.min(tile, rast.h-ty);
+                tiles.add(new RecursiveAction(){
+                    private static final long serialVersionUID = 1L;
+                    protected void compute(){
+                        paintTile(dl, rast, new Rectangle(x, y, w, h), px, py);
+                    }
+                });
+            }
+        }
+        if(tiles.size() == 1 || pool.getParallelism() <= 1){
+            for(RecursiveAction t : tiles)
+                t.invoke();
+        }else{
+            pool.invoke(new RecursiveAction(){
+                private static final long serialVersionUID = 1L;
+                protected void compute(){ ForkJoinTask.invokeAll(tiles); }
+            });
+        }
+        return rast;
+    }
+    
+    /** Paint the part of the Scene that falls in the given tile of the
+     *    buffer.  Tiles do not overlap, so they can be painted at the same
+     *    time. */
+    static void paintTile(DisplayList dl, RasterImage buff, Rectangle tile, int px, int py){
+        if(SoftRenderer.isEnabled()){
+            SoftRenderer.paint(dl, buff, px, py, tile);
+            return;
+        }
+        Graphics2D g = buff.getGraphics();
+        // EmptyScenes replace the clip, so the list must re-apply the
+        //   tile after each one.  The clip also lets it skip images
+        //   outside the tile
+        dl.paint(g, px, py, tile);
+        g.dispose();
+    }
+}
@@ -0,0 +1,132 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/Transformed.java                                      *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package image;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+
+/** Represents an Image drawn with an affine transformation (rotation,
+ *    scaling, flipping, etc.) around its pinhole.  Rather than rasterizing
+ *    the inner Image, the transformation is applied to the
+ *    <tt>Graphics2D</tt> when painting, so the Image keeps its vector
+ *    quality and no extra pixels are pushed around.  The bounds of the
+ *    result are calculated from the transformed corners of the inner Image.
+ *    Transforming a <code>Transformed</code> Image again combines the
+ *    transformations, rather than nesting them.
+ */
+public class Transformed extends Image{
+    protected Image img;
+    private AffineTransform tform;
+    protected double width;
+    protected double height;
+    
+    /** Construct a Transformed Image, applying the given transformation
+     *    around the pinhole of the given Image */
+    public Transformed(Image img, AffineTransform tform){
+        super(0,0);
+        this.img = img;
+        this.tform = new AffineTransform(tform);
+        
+        double[] pts = { -img.leftOfPin(), -img.upOfPin(),
+                          img.rightOfPin(), -img.upOfPin(),
+                         -img.leftOfPin(), img.downOfPin(),
+                          img.rightOfPin(), img.downOfPin() };
+        this.tform.transform(pts, 0, pts, 0, 4);
+        double minX = pts[0], maxX = pts[0],
+               minY = pts[1], maxY = pts[1];
+        for(int i = 2; i < pts.length; i += 2){
+            minX = Math.min(minX, pts[i]);
+            maxX = Math.max(maxX, pts[i]);
+            minY = Math.min(minY, pts[i+1]);
+            maxY = Math.max(maxY, pts[i+1]);
+        }
+        this.width = maxX-minX;
+        this.height = maxY-minY;
+        this.pinholeX = -minX;
+        this.pinholeY = -minY;
+    }
+    
+    /** Return a copy of the transformation applied to the inner Image */
+    public AffineTransform getTransform(){
+        return new AffineTransform(this.tform);
+    }
+    /** Return the inner (untransformed) Image */
+    public Image getImage(){ return this.img; }
+    
+    /** Apply the given transformation after this one */
+    protected Transformed andThen(AffineTransform t){
+        AffineTransform both = new AffineTransform(t);
+        both.concatenate(this.tform);
+        return new Transformed(this.img, both);
+    }
+    /** Return a rotated version of this image by the given angle in degrees. */
+    public Image rotated(double ang){
+        return this.andThen(Rotate.transform(ang));
+    }
+    /** Return a version of this Image scaled by the given X and Y multipliers. */
+    public Image scale(double sx, double sy){
+        return this.andThen(AffineTransform.getScaleInstance(sx, sy));
+    }
+    /** Return a version of this Image flipped horizontally (left to right). */
+    public Image flippedHorizontal(){
+        return this.scale(-1.0, 1.0);
+    }
+    /** Return a version of this Image flipped vertically (top to bottom). */
+    public Image flippedVertical(){
+        return this.scale(1.0, -1.0);
+    }
+    
+    /** Draw this image into a Graphics, with the transformation applied */
+    public void paint(Graphics g, int x, int y){
+        // Scenes set the clip of the Graphics, so composites (that may
+        //   contain Scenes) get their own copy
+        Graphics2D g2 = (Graphics2D)(composite(this.img) ? g.create() : g);
+        AffineTransform old = g2.getTransform();
+        g2.translate(x, y);
+        g2.transform(this.tform);
+        this.img.paint(g2, 0, 0);
+        if(g2 != g)
+            g2.dispose();
+        else
+            g2.setTransform(old);
+    }
+    /** Might the given Image be, or contain, a Scene? */
+    private static boolean composite(Image img){
+        return img instanceof Scene || img instanceof Overlay || img instanceof Transformed;
+    }
+    /** Return the width of this Image */
+    public int width(){ return ceil(this.width); }
+    /** Return the height of this Image */
+    public int height(){ return ceil(this.height); }
+    
+    /** Same inner Image and transformation */
+    protected boolean same(Image i){
+        Transformed t = (Transformed)i;
+        return this.tform.equals(t.tform) && samePart(this.img, t.img);
+    }
+    protected int hash(){
+        return this.img.hashCode()*31+this.tform.hashCode();
+    }
+}
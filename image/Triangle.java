@@ -67,6 +67,10 @@ public class Triangle extends Image{
     public Triangle(int height, String mode, String color){
         this(height,mode(mode),color(color));
     }
+    /** Create a Triangle Image with (double) height, mode and ARGB color */
+    public Triangle(double height, String mode, int color){
+        this(height,mode(mode),color(color));
+    }
     /** Create a Rectangle with converted mode and color */
     private Triangle(double height, int mode, Color color){
         super(height/2, height/2);
@@ -93,4 +97,13 @@ public class Triangle extends Image{
     public int width(){ return round(this.height); }
     /** Return the Height of this Image */
     public int height(){ return round(this.height); }
+    
+    /** Same size, mode, and color */
+    protected boolean same(Image i){
+        Triangle t = (Triangle)i;
+        return same(this.height, t.height) && this.mode == t.mode && this.color.equals(t.color);
+    }
+    protected int hash(){
+        return (hash(this.height)*31+this.mode)*31+this.color.hashCode();
+    }
 }
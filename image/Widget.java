@@ -78,4 +78,16 @@ public class Widget extends Image{
     public int width(){ return (int)(this.inner.getWidth()+2*this.paddingX); }
     /** Return the Height of this Image */
     public int height(){ return (int)(this.inner.getHeight()+2*this.paddingY); }
+    
+    /** Same (identical) component and padding */
+    protected boolean same(Image i){
+        Widget w = (Widget)i;
+        return this.inner == w.inner && same(this.paddingX, w.paddingX) && same(this.paddingY, w.paddingY);
+    }
+    protected int hash(){
+        return (System.identityHashCode(this.inner)*31+hash(this.paddingX))*31+hash(this.paddingY);
+    }
+    /** The component can change without us knowing, so Scenes holding a
+     *    Widget are never the same as earlier ones */
+    boolean live(){ return true; }
 }
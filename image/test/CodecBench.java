@@ -0,0 +1,181 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/test/CodecBench.java                                  *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package image.test;
+
+import image.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Random;
+
+/** Compares {@link ImageCodec} with Java serialization.  Images are not
+ *    Serializable, so the serialized version is a reflective copy of the
+ *    same fields (what Java serialization would write if they were).  Run
+ *    with the number of images to place (default 2000). */
+public class CodecBench{
+    static final int RUNS = 20;
+    
+    public static void main(final String[] args) throws Exception{
+        // Java serialization recurses down the chain of placed images
+        Thread t = new Thread(null, new Runnable(){
+            public void run(){
+                try{
+                    bench(args.length > 0 ? Integer.parseInt(args[0]) : 2000);
+                }catch(Exception e){
+                    e.printStackTrace();
+                }
+            }
+        }, "bench", 1<<28);
+        t.start();
+        t.join();
+    }
+    
+    /** A Scene with a mix of shapes, text, shared sprites and overlays */
+    static Scene scene(int n){
+        Random r = new Random(42);
+        String[] colors = {"red", "blue", "green", "black", "orange", "purple"};
+        Image face = new FromFile("image/test/images/face.png");
+        Image flower = new Overlay(new Circle(5, "solid", "yellow"),
+                new Star(15, 7, "solid", "red"), new Circle(16, "outline", "black"));
+        Scene scn = new EmptyScene(800, 600);
+        for(int i = 0; i < n; i++){
+            String c = colors[r.nextInt(colors.length)];
+            Image img;
+            switch(i%8){
+                case 0: img = new Circle(5+r.nextInt(20), "solid", c); break;
+                case 1: img = new Rectangle(5+r.nextInt(30), 5+r.nextInt(30), "outline", c); break;
+                case 2: img = new Text("Player "+(i%10), 14, c); break;
+                case 3: img = new Triangle(20, "solid", c).rotated(r.nextInt(360)); break;
+                case 4: img = face; break;
+                case 5: img = flower; break;
+                case 6: img = new OverlayXY(new Square(10, "solid", c), 5, 5, new Ellipse(20, 10, "solid", "gray")); break;
+                default: img = new Line(r.nextInt(40)-20, r.nextInt(40)-20, c);
+            }
+            scn = scn.placeImage(img, r.nextInt(800), r.nextInt(600));
+        }
+        return scn;
+    }
+    
+    static void bench(int n) throws Exception{
+        Scene scn = scene(n);
+        
+        byte[] codec = ImageCodec.encode(scn);
+        Image back = ImageCodec.decode(codec);
+        System.out.println(" Placed: "+n+" images, round trip draws the same: "+
+                java.util.Arrays.equals(back.rasterize().pixels(), scn.rasterize().pixels()));
+        
+        long enc = 0, dec = 0;
+        for(int i = 0; i < RUNS; i++){
+            long t0 = System.nanoTime();
+            codec = ImageCodec.encode(scn);
+            long t1 = System.nanoTime();
+            ImageCodec.decode(codec);
+            long t2 = System.nanoTime();
+            enc += t1-t0;
+            dec += t2-t1;
+        }
+        report("ImageCodec", codec.length, enc, dec);
+        
+        // Later frames of the same stream skip the pixels already sent
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageCodec.Writer w = new ImageCodec.Writer(new DataOutputStream(bytes));
+        w.write(scn);
+        int first = bytes.size();
+        w.write(scn.placeImage(new Circle(10, "solid", "red"), 400, 300));
+        System.out.println(" ImageCodec.Writer: first frame "+first+" bytes, next frame "+(bytes.size()-first)+" bytes");
+        
+        byte[] java = null;
+        enc = dec = 0;
+        for(int i = 0; i < RUNS; i++){
+            long t0 = System.nanoTime();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(out);
+            oos.writeObject(mirror(scn, new IdentityHashMap<Object, Object>()));
+            oos.close();
+            java = out.toByteArray();
+            long t1 = System.nanoTime();
+            new ObjectInputStream(new ByteArrayInputStream(java)).readObject();
+            long t2 = System.nanoTime();
+            enc += t1-t0;
+            dec += t2-t1;
+        }
+        report("Serialization", java.length, enc, dec);
+    }
+    
+    static void report(String what, int size, long enc, long dec){
+        System.out.printf(" %-14s %9d bytes  encode %8.3f ms  decode %8.3f ms%n",
+                what+":", size, enc/1e6/RUNS, dec/1e6/RUNS);
+    }
+    
+    /** Serializable copy of an object's fields */
+    static class Node implements Serializable{
+        private static final long serialVersionUID = 1L;
+        String type;
+        Object[] fields;
+    }
+    
+    /** Make a Serializable copy of the given object, sharing copies of
+     *    shared objects (as Java serialization would) */
+    static Object mirror(Object o, IdentityHashMap<Object, Object> done) throws IllegalAccessException{
+        if(o == null || (o instanceof Serializable && !(o instanceof Image) && !(o instanceof Image[])))
+            return o;
+        Object m = done.get(o);
+        if(m != null)
+            return m;
+        if(o instanceof Image[]){
+            Image[] imgs = (Image[])o;
+            Object[] ms = new Object[imgs.length];
+            done.put(o, ms);
+            for(int i = 0; i < imgs.length; i++)
+                ms[i] = mirror(imgs[i], done);
+            return ms;
+        }
+        if(o instanceof BufferedImage){
+            BufferedImage b = (BufferedImage)o;
+            m = b.getRGB(0, 0, b.getWidth(), b.getHeight(), null, 0, b.getWidth());
+            done.put(o, m);
+            return m;
+        }
+        if(!(o instanceof Image))
+            return null;
+        Node node = new Node();
+        done.put(o, node);
+        node.type = o.getClass().getName();
+        ArrayList<Object> fields = new ArrayList<Object>();
+        for(Class<?> c = o.getClass(); c != Object.class; c = c.getSuperclass()){
+            for(Field f : c.getDeclaredFields()){
+                // Skip constants and cached (compiled) display lists
+                if(Modifier.isStatic(f.getModifiers()) || f.getType().getSimpleName().equals("DisplayList"))
+                    continue;
+                f.setAccessible(true);
+                fields.add(mirror(f.get(o), done));
+            }
+        }
+        node.fields = fields.toArray();
+        return node;
+    }
+}
@@ -0,0 +1,69 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/test/SoftRenderBench.java                             *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package image.test;
+
+import image.*;
+import java.util.Random;
+
+/** Times rasterizing a Scene of many small shapes with Java2D and with the
+ *    {@link SoftRenderer}.  Run with the number of shapes (default 20000). */
+public class SoftRenderBench{
+    static final int RUNS = 10;
+    
+    public static void main(String[] args){
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        Random r = new Random(11);
+        String[] colors = {"red", "blue", "green", "black", "orange", "purple"};
+        Image sprite = new Circle(6, "solid", 0xC0008000).rasterize();
+        Scene scn = new EmptyScene(800, 600);
+        for(int i = 0; i < n; i++){
+            String c = colors[r.nextInt(colors.length)];
+            Image img;
+            switch(i%6){
+                case 0: img = new Rectangle(4+r.nextInt(12), 4+r.nextInt(12), "solid", c); break;
+                case 1: img = new Circle(2+r.nextInt(8), "solid", c); break;
+                case 2: img = new Star(4+r.nextInt(8), 5, "solid", c); break;
+                case 3: img = new Triangle(4+r.nextInt(12), "solid", c); break;
+                case 4: img = sprite; break;
+                default: img = new Line(r.nextInt(20)-10, r.nextInt(20)-10, c);
+            }
+            scn = scn.placeImage(img, r.nextInt(800), r.nextInt(600));
+        }
+        scn.displayList();
+        System.out.println(" Scene of "+n+" shapes, "+scn.width()+"x"+scn.height());
+        for(int round = 0; round < 2; round++){
+            // The first round warms up
+            for(boolean soft : new boolean[]{false, true}){
+                SoftRenderer.setEnabled(soft);
+                long t0 = System.nanoTime();
+                for(int i = 0; i < RUNS; i++)
+                    scn.rasterize();
+                long t = System.nanoTime()-t0;
+                if(round > 0)
+                    System.out.printf(" %-12s %8.2f ms per frame%n", soft ? "SoftRenderer:" : "Java2D:", t/1e6/RUNS);
+            }
+        }
+        SoftRenderer.setEnabled(false);
+    }
+}
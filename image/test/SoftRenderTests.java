@@ -0,0 +1,136 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/test/SoftRenderTests.java                             *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package image.test;
+
+import image.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Compares the pixels drawn by the {@link SoftRenderer} with those drawn
+ *    by Java2D.  Each case reports the number of pixels that differ and the
+ *    largest difference in any channel.  Anti-aliased edges may differ a
+ *    little, so each case has its own limits on the largest difference and
+ *    the fraction of pixels that differ (zero for cases that must match
+ *    Java2D exactly), set just above what is measured today. */
+public class SoftRenderTests{
+    static class Case{
+        String name;
+        Image img;
+        /** Largest channel difference, and fraction of differing pixels */
+        int tolerance;
+        double fraction;
+        Case(String name, Image img, int tolerance, double fraction){
+            this.name = name;
+            this.img = img;
+            this.tolerance = tolerance;
+            this.fraction = fraction;
+        }
+    }
+    
+    static List<Case> cases(){
+        List<Case> cs = new ArrayList<Case>();
+        cs.add(new Case("solid rectangle", new Rectangle(40, 20, "solid", "blue"), 0, 0));
+        cs.add(new Case("outline rectangle", new Rectangle(40, 20, "outline", "black"), 0, 0));
+        cs.add(new Case("odd rectangle", new Rectangle(15.5, 9.25, "solid", "red"), 2, 0.03));
+        cs.add(new Case("solid square", new Square(30, "solid", "slateblue"), 0, 0));
+        cs.add(new Case("odd square", new Square(31, "solid", "slateblue"), 2, 0.15));
+        cs.add(new Case("translucent square", new Square(30, "solid", 0x80FF0000), 0, 0));
+        cs.add(new Case("solid circle", new Circle(20, "solid", "blue"), 16, 0.1));
+        cs.add(new Case("outline circle", new Circle(30, "outline", "red"), 16, 0.12));
+        cs.add(new Case("solid ellipse", new Ellipse(60, 30, "solid", "purple"), 24, 0.1));
+        cs.add(new Case("outline ellipse", new Ellipse(40, 20, "outline", "black"), 24, 0.25));
+        cs.add(new Case("line", new Line(30, 30, "black"), 2, 0.1));
+        cs.add(new Case("flat line", new Line(30, 0, "black"), 0, 0));
+        cs.add(new Case("steep line", new Line(-30, 20, "red"), 2, 0.07));
+        cs.add(new Case("point line", new Line(0, 0, "red"), 0, 0));
+        cs.add(new Case("solid triangle", new Triangle(40, "solid", "tan"), 0, 0));
+        cs.add(new Case("outline triangle", new Triangle(60, "outline", "purple"), 24, 0.05));
+        cs.add(new Case("solid polygon", new RegularPolygon(20, 8, "solid", "red"), 2, 0.04));
+        cs.add(new Case("outline polygon", new RegularPolygon(50, 3, "outline", "red"), 40, 0.02));
+        cs.add(new Case("outline square polygon", new RegularPolygon(40, 4, "outline", "blue"), 0, 0));
+        cs.add(new Case("solid star", new Star(40, 5, "solid", "gray"), 16, 0.05));
+        cs.add(new Case("outline star", new Star(30, 7, "outline", "red"), 56, 0.1));
+        cs.add(new Case("raster", new Circle(20, "solid", 0xC00000FF).rasterize(), 0, 0));
+        cs.add(new Case("file", new FromFile("image/test/images/face.png"), 0, 0));
+        cs.add(new Case("overlay", new Overlay(new Rectangle(30, 60, "solid", "orange"),
+                new Ellipse(60, 30, "solid", "purple")), 12, 0.03));
+        cs.add(new Case("clipped scene", new EmptyScene(100, 80)
+                .placeImage(new Circle(30, "solid", "red"), 10, 10)
+                .placeImage(new Square(50, "solid", "blue"), 95, 75), 16, 0.01));
+        cs.add(new Case("text (Java2D)", new EmptyScene(80, 40, "yellow")
+                .placeImage(new Text("Hello", 24, "olive"), 40, 20), 0, 0));
+        
+        Random r = new Random(7);
+        String[] colors = {"red", "blue", "green", "black", "orange", "purple"};
+        Scene scn = new EmptyScene(300, 200, "white");
+        for(int i = 0; i < 300; i++){
+            String c = colors[r.nextInt(colors.length)], m = r.nextBoolean() ? "solid" : "outline";
+            Image img;
+            switch(i%5){
+                case 0: img = new Circle(2+r.nextInt(20), m, c); break;
+                case 1: img = new Rectangle(2+r.nextInt(30), 2+r.nextInt(30), m, c); break;
+                case 2: img = new Star(5+r.nextInt(20), 5, m, c); break;
+                case 3: img = new Triangle(5+r.nextInt(30), m, c); break;
+                default: img = new Line(r.nextInt(60)-30, r.nextInt(60)-30, c);
+            }
+            scn = scn.placeImage(img, r.nextDouble()*300, r.nextDouble()*200);
+        }
+        cs.add(new Case("random scene", scn, 56, 0.2));
+        return cs;
+    }
+    
+    public static void main(String[] args){
+        int failed = 0;
+        for(Case c : cases()){
+            Scene scn = c.img.toScene();
+            SoftRenderer.setEnabled(false);
+            RasterImage java2d = scn.rasterize();
+            SoftRenderer.setEnabled(true);
+            RasterImage soft = scn.rasterize();
+            SoftRenderer.setEnabled(false);
+            
+            int diff = 0, max = 0;
+            for(int y = 0; y < java2d.height(); y++){
+                for(int x = 0; x < java2d.width(); x++){
+                    int a = java2d.getPixel(x, y).getRGB(), b = soft.getPixel(x, y).getRGB();
+                    if(a == b)continue;
+                    diff++;
+                    // Colors are compared premultiplied, since the color of
+                    //   an (almost) transparent pixel hardly matters
+                    int aa = a>>>24, ba = b>>>24;
+                    max = Math.max(max, Math.abs(aa-ba));
+                    for(int s = 0; s < 24; s += 8)
+                        max = Math.max(max, Math.abs(((a>>>s)&0xFF)*aa/255-((b>>>s)&0xFF)*ba/255));
+                }
+            }
+            int pixels = java2d.width()*java2d.height();
+            boolean ok = max <= c.tolerance && diff <= c.fraction*pixels;
+            if(!ok)failed++;
+            System.out.printf(" %-4s %-24s %6d of %6d pixels differ, max channel difference %3d%n",
+                    ok ? "OK" : "FAIL", c.name+":", diff, pixels, max);
+        }
+        System.out.println(failed == 0 ? " All Passed" : " Failed: "+failed);
+    }
+}
@@ -0,0 +1,106 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./image/test/TiledTests.java                                  *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package image.test;
+
+import image.*;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/** Compares Scenes rasterized in parallel tiles with the same Scenes
+ *    rasterized whole.  Java2D (Marlin) subdivides curves that cross the
+ *    clip, so the anti-aliased edges of curves clipped to a tile may differ
+ *    a little from the whole Scene's.  Each case allows a largest channel
+ *    difference and a fraction of differing pixels; straight edges must
+ *    match exactly. */
+public class TiledTests{
+    static class Case{
+        String name;
+        Scene scn;
+        /** Largest channel difference, and fraction of differing pixels */
+        int tolerance;
+        double fraction;
+        Case(String name, Scene scn, int tolerance, double fraction){
+            this.name = name;
+            this.scn = scn;
+            this.tolerance = tolerance;
+            this.fraction = fraction;
+        }
+    }
+    
+    /** A random Scene of the given size with n images of every kind */
+    static Scene random(int size, int n, boolean curves){
+        Random r = new Random(7);
+        String[] colors = {"red", "blue", "green", "black", "orange", "purple"};
+        Scene scn = new EmptyScene(size, size);
+        for(int i = 0; i < n; i++){
+            String c = colors[r.nextInt(colors.length)], m = r.nextBoolean() ? "solid" : "outline";
+            Image img;
+            switch(r.nextInt(curves ? 8 : 4)){
+                case 0: img = new Rectangle(5+r.nextInt(90), 5+r.nextInt(50), m, c); break;
+                case 1: img = new Square(5+r.nextInt(40), m, c); break;
+                case 2: img = new Text("Hello "+i, 10+r.nextInt(30), c); break;
+                case 3: img = new Overlay(new Square(10, m, c), new Square(25, "solid", "yellow")); break;
+                case 4: img = new Circle(5+r.nextInt(60), m, c); break;
+                case 5: img = new Star(10+r.nextInt(40), 5, m, c); break;
+                case 6: img = new Ellipse(10+r.nextInt(80), 5+r.nextInt(30), m, c).rotated(r.nextDouble()*360); break;
+                default: img = new Line(r.nextInt(200)-100, r.nextInt(200)-100, c);
+            }
+            scn = scn.placeImage(img, r.nextInt(size), r.nextInt(size));
+        }
+        return scn;
+    }
+    
+    public static void main(String[] args){
+        Case[] cases = {
+            new Case("straight edges", random(1200, 2000, false), 0, 0),
+            new Case("curves", random(1200, 2000, true), 32, 0.02),
+            new Case("big curves", new EmptyScene(1000, 1000)
+                    .placeImage(new Circle(480, "outline", "red"), 500, 500)
+                    .placeImage(new Ellipse(900, 300, "solid", "blue").rotated(30), 500, 500), 40, 0.01),
+        };
+        ForkJoinPool pool = new ForkJoinPool(4);
+        int failed = 0;
+        for(Case c : cases){
+            RasterImage whole = c.scn.rasterize();
+            int[] a = whole.pixels();
+            for(int tile : new int[]{37, 128, 256}){
+                int[] b = c.scn.rasterizeTiled(tile, pool).pixels();
+                int diff = 0, max = 0;
+                for(int i = 0; i < a.length; i++){
+                    if(a[i] == b[i])continue;
+                    diff++;
+                    for(int s = 0; s < 32; s += 8)
+                        max = Math.max(max, Math.abs(((a[i]>>>s)&0xFF)-((b[i]>>>s)&0xFF)));
+                }
+                boolean ok = max <= c.tolerance && diff <= c.fraction*a.length;
+                if(!ok)failed++;
+                System.out.printf(" %-4s %-16s tile %3d: %6d of %7d pixels differ, max channel difference %3d%n",
+                        ok ? "OK" : "FAIL", c.name+":", tile, diff, a.length, max);
+            }
+        }
+        pool.shutdown();
+        System.out.println(failed == 0 ? " All Passed" : " Failed: "+failed);
+    }
+}
@@ -26,16 +26,15 @@ package universe.base;
 import universe.control.*;
 
 import java.awt.Color;
-import java.awt.RenderingHints;
 
 import universe.*;
 import javax.swing.*;
 
 import java.awt.Graphics2D;
 import java.awt.event.*;
-import java.awt.image.BufferedImage;
 import java.io.Serializable;
 import image.*;
+import util.ScreenBuffer;
 
 /* TODO:
  */
@@ -53,32 +52,41 @@ public class UniverseBase<Msg extends Serializable>{
     OnNew<Msg> onnew;
     OnDisconnect<Msg> ondisconnect;
     OnMsg<Msg> onmsg;
+    /** Draw frames straight to the screen, see {@link ScreenBuffer}? */
+    boolean active;
     
     public UniverseBase(Universe<Msg> initial){
-        this(initial, 0.05, null, null, null, null, null);
+        this(initial, 0.05, null, null, null, null, null, false);
     }
     public UniverseBase<Msg> onDraw(OnDraw<Msg> ondraw){
         return new UniverseBase<Msg>(this.initial, this.time,
-                ondraw, this.ontick, this.onnew, this.ondisconnect, this.onmsg);
+                ondraw, this.ontick, this.onnew, this.ondisconnect, this.onmsg, this.active);
     }
     public UniverseBase<Msg> onTick(OnTick<Msg> ontick){
         return onTick(ontick, 0.05);
     }
     public UniverseBase<Msg> onTick(OnTick<Msg> ontick, double time){
         return new UniverseBase<Msg>(this.initial, this.time,
-                this.ondraw, ontick, this.onnew, this.ondisconnect, this.onmsg);
+                this.ondraw, ontick, this.onnew, this.ondisconnect, this.onmsg, this.active);
     }
     public UniverseBase<Msg> onNew(OnNew<Msg> onnew){
         return new UniverseBase<Msg>(this.initial, this.time,
-                this.ondraw, this.ontick, onnew, this.ondisconnect, this.onmsg);
+                this.ondraw, this.ontick, onnew, this.ondisconnect, this.onmsg, this.active);
     }
     public UniverseBase<Msg> onDisconnect(OnDisconnect<Msg> ondisconnect){
         return new UniverseBase<Msg>(this.initial, this.time,
-                this.ondraw, this.ontick, this.onnew, ondisconnect, this.onmsg);
+                this.ondraw, this.ontick, this.onnew, ondisconnect, this.onmsg, this.active);
     }
     public UniverseBase<Msg> onMsg(OnMsg<Msg> onmsg){
         return new UniverseBase<Msg>(this.initial, this.time,
-                this.ondraw, this.ontick, this.onnew, this.ondisconnect, onmsg);
+                this.ondraw, this.ontick, this.onnew, this.ondisconnect, onmsg, this.active);
+    }
+    /** Use active rendering: frames are drawn into an accelerated buffer
+     *    and copied straight to the window, rather than waiting for Swing
+     *    to repaint it.  Ignored when running headless. */
+    public UniverseBase<Msg> activeRendering(boolean active){
+        return new UniverseBase<Msg>(this.initial, this.time,
+                this.ondraw, this.ontick, this.onnew, this.ondisconnect, this.onmsg, active);
     }
     
     private static int SPACE = 5;
@@ -91,7 +99,7 @@ public class UniverseBase<Msg extends Serializable>{
         JDialog f = new JDialog((JFrame)null, "Universe", true);
         Scene scn = doOnDraw(this.initial);
         final Handler<Msg> handler = new Handler<Msg>(this, this.initial,
-                new BufferedImage((int)(scn.width()+2*SPACE), (int)(scn.height()+2*SPACE), BufferedImage.TYPE_INT_RGB),
+                (int)(scn.width()+2*SPACE), (int)(scn.height()+2*SPACE),
                 (int)(this.time*1000), f);
         f.setSize((int)(SPACE*2+Math.max(20, 14+scn.width())),
                 (int)(Math.max(20, SPACE*2+31+scn.height())));
@@ -148,7 +156,7 @@ public class UniverseBase<Msg extends Serializable>{
     private UniverseBase(Universe<Msg> init, double time, 
             OnDraw<Msg> ondraw,
             OnTick<Msg> ontick, OnNew<Msg> onnew,
-            OnDisconnect<Msg> ondisconnect, OnMsg<Msg> onmsg){
+            OnDisconnect<Msg> ondisconnect, OnMsg<Msg> onmsg, boolean active){
         this.initial = init;
         this.time = time;
         this.ondraw = ondraw;
@@ -156,6 +164,7 @@ public class UniverseBase<Msg extends Serializable>{
         this.onnew = onnew;
         this.ondisconnect = ondisconnect;
         this.onmsg = onmsg;
+        this.active = active;
     }    
     
         
@@ -165,21 +174,17 @@ public class UniverseBase<Msg extends Serializable>{
         private static final long serialVersionUID = 1L;
         UniverseBase<Msg> univ;
         Universe<Msg> u;
-        BufferedImage buffer;
-        Graphics2D graph;
+        /** The back buffer, also the lock for drawing into it */
+        final ScreenBuffer screen;
         Timer run;
         
         Handler(UniverseBase<Msg> univ, Universe<Msg> u,
-                BufferedImage buff,
+                int width, int height,
                 int msec, JDialog dia){
             this.univ = univ;
             this.u = u;
             this.run = new Timer(msec, this);
-            this.buffer = buff;
-            this.graph = buff.createGraphics();
-            this.graph.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            this.graph.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
-            
+            this.screen = new ScreenBuffer(this, width, height, univ.active);
         }
         public void actionPerformed(ActionEvent e){
             replace(this.univ.doOnTick(this.u));
@@ -188,14 +193,36 @@ public class UniverseBase<Msg extends Serializable>{
             if(b == null)return;
             boolean change = !this.u.equals(b.getUniverse());
             this.u = b.getUniverse();
-            if(change)repaint();
+            if(change)present();
         }
         public void paint(java.awt.Graphics g){
-            this.graph.setColor(Color.white);
-            this.graph.fillRect(0,0, this.getWidth(), this.getHeight());
-            this.graph.clipRect(SPACE, SPACE, this.buffer.getWidth()-SPACE*2, this.buffer.getHeight()-SPACE*2);
-            this.univ.doOnDraw(this.u).paint(this.graph,SPACE,SPACE);
-            g.drawImage(this.buffer, 0, 0, null);
+            synchronized(this.screen){
+                this.update();
+                this.screen.paint(g);
+            }
+        }
+        /** Put the current Universe on the screen: an active buffer is
+         *    drawn and shown by the calling thread, otherwise Swing will
+         *    paint it */
+        void present(){
+            if(!this.screen.isActive()){
+                repaint();
+                return;
+            }
+            synchronized(this.screen){
+                do{
+                    this.update();
+                }while(!this.screen.show());
+            }
+        }
+        /** Draw the current Universe into the back buffer (holding the
+         *    buffer's lock) */
+        private void update(){
+            Graphics2D graph = this.screen.graphics();
+            graph.setColor(Color.white);
+            graph.fillRect(0,0, this.getWidth(), this.getHeight());
+            graph.clipRect(SPACE, SPACE, this.screen.getWidth()-SPACE*2, this.screen.getHeight()-SPACE*2);
+            this.univ.doOnDraw(this.u).paint(graph,SPACE,SPACE);
         }
     }
     Scene doOnDraw(Universe<Msg> u){
@@ -34,10 +34,9 @@ import java.net.*;
 import java.io.*;
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
-import java.awt.RenderingHints;
 import java.awt.event.*;
 import image.*;
+import util.ScreenBuffer;
 import java.util.Timer;
 import java.util.TimerTask;
 import javax.swing.event.PopupMenuEvent;
@@ -115,13 +114,17 @@ public class BigBang<Msg extends Serializable>{
     private OnReceive<Msg> onreceive;
     private StopWhen stopwhen;
     private LastScene lastscene;
+    /** Handler of the running animation, if any */
+    private volatile Handler handler;
     private String server = "";
     private String name = "";
+    /** Draw frames straight to the screen, see {@link ScreenBuffer}? */
+    private boolean active = false;
     
     
     public BigBang(World<Msg> initial){
         this(initial, 0.05, null, null, null, null,
-                null, null, null, null, null, null);
+                null, null, null, null, null, null, false);
     }
     /** Install a Draw Handler into this BigBang.  The Draw handler
      *    requires an apply method [World&lt;Msg&gt; -&gt; Scene],
@@ -130,7 +133,7 @@ public class BigBang<Msg extends Serializable>{
     public BigBang<Msg> onDraw(OnDraw ondraw){
         return new BigBang<Msg>(this.initial, this.time,
                 ondraw, this.ontick, this.onmouse, this.onkey, this.onrelease,
-                this.onreceive, this.stopwhen, this.lastscene, this.server, this.name);
+                this.onreceive, this.stopwhen, this.lastscene, this.server, this.name, this.active);
     }
     /** Install a Tick Handler at a tick rate of 1/20th of a second. */
     public BigBang<Msg> onTick(OnTick<Msg> ontick){
@@ -143,7 +146,7 @@ public class BigBang<Msg extends Serializable>{
     public BigBang<Msg> onTick(OnTick<Msg> ontick, double time){
         return new BigBang<Msg>(this.initial, this.time,
                 this.ondraw, ontick, this.onmouse, this.onkey, this.onrelease,
-                this.onreceive, this.stopwhen, this.lastscene, this.server, this.name);
+                this.onreceive, this.stopwhen, this.lastscene, this.server, this.name, this.active);
     }
     /** Install a Mouse Handler into this BigBang.  The Mouse handler
      *    requires an apply method [World&lt;Msg&gt; -&gt; World&lt;Msg&gt;], though the
@@ -152,7 +155,7 @@ public class BigBang<Msg extends Serializable>{
     public BigBang<Msg> onMouse(OnMouse<Msg> onmouse){
         return new BigBang<Msg>(this.initial, this.time,
                 this.ondraw, this.ontick, onmouse, this.onkey, this.onrelease,
-                this.onreceive, this.stopwhen, this.lastscene, this.server, this.name);
+                this.onreceive, this.stopwhen, this.lastscene, this.server, this.name, this.active);
     }
     /** Install a Key Handler into this BigBang.  The Key handler
      *    requires an apply method [World&lt;Msg&gt; String -&gt; World&lt;Msg&gt;], though
@@ -161,7 +164,7 @@ public class BigBang<Msg extends Serializable>{
     public BigBang<Msg> onKey(OnKey<Msg> onkey){
         return new BigBang<Msg>(this.initial, this.time,
                 this.ondraw, this.ontick, this.onmouse, onkey, this.onrelease,
-                this.onreceive, this.stopwhen, this.lastscene, this.server, this.name);
+                this.onreceive, this.stopwhen, this.lastscene, this.server, this.name, this.active);
     }
     /** Install a Key Release Handler into this BigBang.  The Key
      *    Release handler requires an apply method [World&lt;Msg&gt; String -&gt;
@@ -170,12 +173,12 @@ public class BigBang<Msg extends Serializable>{
     public BigBang<Msg> onRelease(OnRelease<Msg> onrelease){
         return new BigBang<Msg>(this.initial, this.time,
                 this.ondraw, this.ontick, this.onmouse, this.onkey, onrelease,
-                this.onreceive, this.stopwhen, this.lastscene, this.server, this.name);
+                this.onreceive, this.stopwhen, this.lastscene, this.server, this.name, this.active);
     }
     public BigBang<Msg> onReceive(OnReceive<Msg> onreceive){
         return new BigBang<Msg>(this.initial, this.time,
                 this.ondraw, this.ontick, this.onmouse, this.onkey, this.onrelease,
-                onreceive, this.stopwhen, this.lastscene, this.server, this.name);
+                onreceive, this.stopwhen, this.lastscene, this.server, this.name, this.active);
     }
     /** Install a StopWhen Handler into this BigBang.  The StopWhen
      *    handler requires an apply method [World&lt;?&gt; -&gt; Boolean],
@@ -188,7 +191,7 @@ public class BigBang<Msg extends Serializable>{
     public BigBang<Msg> stopWhen(StopWhen stopwhen){
         return new BigBang<Msg>(this.initial, this.time,
                 this.ondraw, this.ontick, this.onmouse, this.onkey, this.onrelease,
-                this.onreceive, stopwhen, this.lastscene, this.server, this.name);
+                this.onreceive, stopwhen, this.lastscene, this.server, this.name, this.active);
     }
     /** Install a LastScene Handler into this BigBang.  The LastScene
      *    handler requires an apply method [World&lt;?&gt; -&gt; Scene], though
@@ -198,27 +201,35 @@ public class BigBang<Msg extends Serializable>{
     public BigBang<Msg> lastScene(LastScene lastscene){
         return new BigBang<Msg>(this.initial, this.time,
                 this.ondraw, this.ontick, this.onmouse, this.onkey, this.onrelease,
-                this.onreceive, this.stopwhen, lastscene, this.server, this.name);
+                this.onreceive, this.stopwhen, lastscene, this.server, this.name, this.active);
     }
     /** Install the name of the Universe server to connect to once
      *    {@link BigBang#bigBang bigBang} is called */
     public BigBang<Msg> register(String server){
         return new BigBang<Msg>(this.initial, this.time,
                 this.ondraw, this.ontick, this.onmouse, this.onkey, this.onrelease,
-                this.onreceive, this.stopwhen, this.lastscene, server, this.name);
+                this.onreceive, this.stopwhen, this.lastscene, server, this.name, this.active);
     }
     /** Install the name of this client, to be used with the Universe server */
     public BigBang<Msg> name(String name){
         return new BigBang<Msg>(this.initial, this.time,
                 this.ondraw, this.ontick, this.onmouse, this.onkey, this.onrelease,
-                this.onreceive, this.stopwhen, this.lastscene, this.server, name);
+                this.onreceive, this.stopwhen, this.lastscene, this.server, name, this.active);
+    }
+    /** Use active rendering: frames are drawn into an accelerated buffer
+     *    and copied straight to the window, rather than waiting for Swing
+     *    to repaint it.  Ignored when running headless. */
+    public BigBang<Msg> activeRendering(boolean active){
+        return new BigBang<Msg>(this.initial, this.time,
+                this.ondraw, this.ontick, this.onmouse, this.onkey, this.onrelease,
+                this.onreceive, this.stopwhen, this.lastscene, this.server, this.name, active);
     }
     
     // Private constructors...
     private BigBang(World<Msg> init, double time, 
             OnDraw ondraw, OnTick<Msg> ontick, OnMouse<Msg> onmouse,
             OnKey<Msg> onkey, OnRelease<Msg> onrelease, OnReceive<Msg> onreceive, StopWhen stopwhen,
-            LastScene lastscene, String server, String name){
+            LastScene lastscene, String server, String name, boolean active){
         this.initial = init;
         this.time = time;
         this.ondraw = ondraw;
@@ -231,6 +242,7 @@ public class BigBang<Msg extends Serializable>{
         this.lastscene = lastscene;
         this.server = server;
         this.name = name;
+        this.active = active;
     }    
     /** Wrapper for the Draw Handler */
     private Scene doOnDraw(World<Msg> w){
@@ -292,7 +304,6 @@ public class BigBang<Msg extends Serializable>{
         JDialog f = new JDialog((JFrame)null, title, true);
         Scene scn = doOnDraw(this.initial);
         Handler handler = new Handler(this,this.initial, scn,
-                new BufferedImage((int)(scn.width()+2*SPACE), (int)(scn.height()+2*SPACE), BufferedImage.TYPE_INT_RGB),
                 f, (int)(Math.random()*1000000));
         f.setSize((int)(SPACE*2+Math.max(20, 14+scn.width())),
                 (int)(Math.max(20, SPACE*2+31+scn.height())));
@@ -300,10 +311,19 @@ public class BigBang<Msg extends Serializable>{
         f.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
         f.setResizable(false);
         f.getContentPane().add(handler);
+        this.handler = handler;
         f.setVisible(true);
         handler.finish();
+        this.handler = null;
         return handler.w;
     }
+    /** Ask the running animation to redraw its whole Scene, even if the
+     *    World has not changed, e.g., when an {@link image.AsyncImage} has
+     *    finished loading.  Can be called from any thread. */
+    public void redraw(){
+        Handler h = this.handler;
+        if(h != null)h.redraw();
+    }
     
     /** Gap left around the border of the Window */
     private static int SPACE = 5;
@@ -315,12 +335,14 @@ public class BigBang<Msg extends Serializable>{
         BigBang<Msg> world;
         World<Msg> w;
         Scene scnBuffer;
-        BufferedImage buffer;
-        Graphics2D graph;
+        /** The back buffer, also the lock for drawing into it */
+        final ScreenBuffer screen;
         Timer run;
         TimerTask ticker;
         boolean isRunning = false;
         boolean isDone = false;
+        /** Must the whole Scene be redrawn, even if it's the same? */
+        volatile boolean stale = false;
 
         // Specific to the Universe
         long id = 0; 
@@ -330,15 +352,13 @@ public class BigBang<Msg extends Serializable>{
         Thread receiver;
 
         /** Create a new Handler for all the World's events */        
-        Handler(BigBang<Msg> world, World<Msg> ww, Scene scn, BufferedImage buff, JDialog dia, long id){
+        Handler(BigBang<Msg> world, World<Msg> ww, Scene scn, JDialog dia, long id){
             this.world = world;
             this.w = ww;
             this.id = id;
             this.scnBuffer = null;
-            this.buffer = buff;
-            this.graph = buff.createGraphics();
-            this.graph.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            this.graph.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+            this.screen = new ScreenBuffer(this, (int)(scn.width()+2*SPACE), (int)(scn.height()+2*SPACE),
+                                           world.active);
             this.run = new Timer();
             addMouseListener(this);
             if(world.onmouse != null){
@@ -413,20 +433,47 @@ public class BigBang<Msg extends Serializable>{
         /** Swing uses a <tt>paint(Graphics)</tt> method to draw the
          *    component (Handler) into the window. */
         public void paint(java.awt.Graphics g){
+            synchronized(this.screen){
+                this.update();
+                this.screen.paint(g);
+            }
+        }
+        /** Put the current World on the screen: an active buffer is drawn
+         *    and shown by the calling thread, otherwise Swing will paint it */
+        void present(){
+            if(!this.screen.isActive()){
+                repaint();
+                return;
+            }
+            synchronized(this.screen){
+                do{
+                    this.update();
+                }while(!this.screen.show());
+            }
+        }
+        /** Draw the current World into the back buffer, if its Scene isn't
+         *    there already (holding the buffer's lock) */
+        private void update(){
             Scene curr;
             if(!this.isDone)
                 curr = this.world.doOnDraw(this.w);
             else
                 curr = this.world.doLastScene(this.w);
+            Graphics2D graph = this.screen.graphics();
             
-            if(curr != this.scnBuffer){
+            if(this.stale || this.screen.restored() || !curr.equals(this.scnBuffer)){
                 this.scnBuffer = curr;
-                this.graph.setColor(Color.white);
-                this.graph.fillRect(0,0, this.getWidth(), this.getHeight());
-                this.graph.clipRect(SPACE, SPACE, this.buffer.getWidth()-SPACE*2, this.buffer.getHeight()-SPACE*2);
-                this.scnBuffer.paint(this.graph,SPACE,SPACE);
+                this.stale = false;
+                graph.setColor(Color.white);
+                graph.fillRect(0,0, this.getWidth(), this.getHeight());
+                graph.clipRect(SPACE, SPACE, this.screen.getWidth()-SPACE*2, this.screen.getHeight()-SPACE*2);
+                this.scnBuffer.paint(graph,SPACE,SPACE);
             }
-            g.drawImage(this.buffer, 0, 0, null);
+        }
+        /** Redraw the whole Scene the next time we paint */
+        void redraw(){
+            this.stale = true;
+            repaint();
         }
         /** Rather than Swing timers, we use to java.util.Timer to
          *    provide compatibility with Android (i.e., so the code
@@ -536,7 +583,7 @@ public class BigBang<Msg extends Serializable>{
             
             boolean change = !this.w.equals(p.getWorld());
             this.w = p.getWorld();
-            if(change)repaint();
+            if(change)present();
             if(p.hasMsg() && this.sock != null){
                 // Deliver Message to the universe
                 try{
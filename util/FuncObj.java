@@ -0,0 +1,121 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./util/FuncObj.java                                           *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/** The <tt>apply</tt> method of a function object (handler), compiled once
+ *    into a <tt>MethodHandle</tt> bound to the object.  Unlike {@link
+ *    Util#applyFunc(Object, Method, Object[])}, calls do not allocate an
+ *    argument array, box <tt>int</tt>s, or go through reflection.  Each
+ *    FuncObj is adapted to one of the call shapes below, and must be called
+ *    with the matching <tt>call</tt>/<tt>test</tt> method. */
+public final class FuncObj{
+    /** <tt>Object apply(Object)</tt>, e.g., tick and draw handlers */
+    public static final MethodType UNARY = MethodType.methodType(Object.class, Object.class);
+    /** <tt>Object apply(Object, String)</tt>, e.g., key handlers */
+    public static final MethodType KEY = MethodType.methodType(Object.class, Object.class, String.class);
+    /** <tt>Object apply(Object, Object)</tt>, e.g., batch handlers */
+    public static final MethodType BINARY = MethodType.methodType(Object.class, Object.class, Object.class);
+    /** <tt>Object apply(Object, int, int, String)</tt>, i.e., mouse handlers */
+    public static final MethodType MOUSE = MethodType.methodType(Object.class, Object.class, int.class, int.class, String.class);
+    /** <tt>boolean apply(Object)</tt>, e.g., stop-when handlers */
+    public static final MethodType PRED = MethodType.methodType(boolean.class, Object.class);
+    
+    private final MethodHandle mh;
+    
+    private FuncObj(MethodHandle mh){
+        this.mh = mh;
+    }
+    
+    /** Compile the given method of the function object f, adapted to the
+     *    given call shape.  The method (found by the caller, e.g., with
+     *    {@link Util#subtypes(Class[], Class[])}) may have narrower argument
+     *    types, or boxed versions of primitive ones. */
+    public static FuncObj bind(Object f, Method m, MethodType shape){
+        try{
+            // Handlers are often private/nested classes of the user's program;
+            //   if access is refused, unreflect reports it below
+            m.trySetAccessible();
+            MethodHandle mh = MethodHandles.lookup().unreflect(m).bindTo(f);
+            return new FuncObj(mh.asType(shape));
+        }catch(IllegalAccessException iae){
+            throw new RuntimeException(iae);
+        }
+    }
+    
+    /** Call a {@link #UNARY} function object */
+    public Object call(Object a){
+        try{
+            return (Object)this.mh.invokeExact(a);
+        }catch(Throwable t){
+            throw rethrow(t);
+        }
+    }
+    /** Call a {@link #KEY} function object */
+    public Object call(Object a, String s){
+        try{
+            return (Object)this.mh.invokeExact(a, s);
+        }catch(Throwable t){
+            throw rethrow(t);
+        }
+    }
+    /** Call a {@link #BINARY} function object */
+    public Object call(Object a, Object b){
+        try{
+            return (Object)this.mh.invokeExact(a, b);
+        }catch(Throwable t){
+            throw rethrow(t);
+        }
+    }
+    /** Call a {@link #MOUSE} function object */
+    public Object call(Object a, int x, int y, String s){
+        try{
+            return (Object)this.mh.invokeExact(a, x, y, s);
+        }catch(Throwable t){
+            throw rethrow(t);
+        }
+    }
+    /** Call a {@link #PRED} function object */
+    public boolean test(Object a){
+        try{
+            return (boolean)this.mh.invokeExact(a);
+        }catch(Throwable t){
+            throw rethrow(t);
+        }
+    }
+    
+    /** Pass on exceptions thrown by the handler, as Util.applyFunc does */
+    private static RuntimeException rethrow(Throwable t){
+        if(t instanceof RuntimeException)
+            return (RuntimeException)t;
+        if(t instanceof Error)
+            throw (Error)t;
+        return new RuntimeException(t);
+    }
+}
@@ -0,0 +1,151 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./util/ScreenBuffer.java                                      *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package util;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import javax.swing.JComponent;
+
+/** The back buffer that a component's Scenes are drawn into before they
+ *    are put on the screen.  A passive buffer is a <tt>BufferedImage</tt>
+ *    that is copied to the screen when Swing paints the component.  An
+ *    active buffer is an (accelerated) <tt>VolatileImage</tt> that can
+ *    also be shown directly with {@link #show()}, from any thread, without
+ *    going through Swing's repaint manager.  Active buffers act passive
+ *    when running headless, or until the component is displayable.
+ *    <p>
+ *    The contents of a <tt>VolatileImage</tt> can be lost at any time, so
+ *    drawing into an active buffer looks like:
+ *    <pre>
+ *      do{
+ *          Graphics2D g = buffer.graphics();
+ *          // Draw everything if buffer.restored(), otherwise what changed
+ *      }while(!buffer.show());</pre>
+ *    Callers must synchronize drawing and painting themselves. */
+public final class ScreenBuffer{
+    private final JComponent comp;
+    private final int width, height;
+    private final boolean active;
+    /** Passive buffer, or null once an active buffer has its VolatileImage */
+    private BufferedImage image;
+    private VolatileImage vimage;
+    private Graphics2D graph;
+    /** Were the old contents lost when the Graphics were last requested? */
+    private boolean restored = true;
+    
+    /** Create a back buffer of the given size for the component, active
+     *    if requested and possible */
+    public ScreenBuffer(JComponent comp, int width, int height, boolean active){
+        this.comp = comp;
+        this.width = width;
+        this.height = height;
+        this.active = active && !GraphicsEnvironment.isHeadless();
+    }
+    
+    /** Width of the buffer */
+    public int getWidth(){ return this.width; }
+    /** Height of the buffer */
+    public int getHeight(){ return this.height; }
+    /** Is this an active buffer, i.e., does {@link #show()} draw to the
+     *    screen itself? */
+    public boolean isActive(){ return this.active; }
+    
+    /** Graphics for drawing into the buffer, (re)creating or restoring the
+     *    buffer first if needed.  Afterwards {@link #restored()} tells
+     *    whether its old contents are gone. */
+    public Graphics2D graphics(){
+        this.restored = false;
+        if(this.active){
+            GraphicsConfiguration gc = this.comp.getGraphicsConfiguration();
+            int valid = (this.vimage == null) ? VolatileImage.IMAGE_INCOMPATIBLE : this.vimage.validate(gc);
+            if(valid == VolatileImage.IMAGE_INCOMPATIBLE && gc != null){
+                if(this.vimage != null)
+                    this.vimage.flush();
+                this.vimage = gc.createCompatibleVolatileImage(this.width, this.height);
+                this.vimage.validate(gc);
+                this.image = null;
+            }
+            if(this.vimage != null){
+                if(valid != VolatileImage.IMAGE_OK)
+                    this.use(this.vimage.createGraphics());
+                return this.graph;
+            }
+        }
+        if(this.image == null){
+            this.image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_RGB);
+            this.use(this.image.createGraphics());
+        }
+        return this.graph;
+    }
+    /** Start drawing with new Graphics, into an empty buffer */
+    private void use(Graphics2D g){
+        if(this.graph != null)
+            this.graph.dispose();
+        this.graph = g;
+        this.graph.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        this.graph.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        this.restored = true;
+    }
+    /** Must everything be drawn again, since the last call to {@link
+     *    #graphics()} found the buffer new or its contents lost? */
+    public boolean restored(){ return this.restored; }
+    
+    /** Have the contents of the buffer been lost since it was drawn? */
+    public boolean contentsLost(){
+        return this.vimage != null && this.vimage.contentsLost();
+    }
+    /** Copy the buffer into the given Graphics, e.g., when Swing paints
+     *    the component */
+    public void paint(Graphics g){
+        Image img = (this.vimage != null) ? this.vimage : this.image;
+        if(img != null)
+            g.drawImage(img, 0, 0, null);
+    }
+    /** Put the buffer on the screen.  An active buffer is copied straight
+     *    to the component, otherwise Swing is asked to repaint it.  Returns
+     *    false if the contents were lost before they could be shown, in
+     *    which case they should be drawn and shown again. */
+    public boolean show(){
+        Graphics g = (this.vimage != null) ? this.comp.getGraphics() : null;
+        if(g == null){
+            this.comp.repaint();
+            return true;
+        }
+        try{
+            g.drawImage(this.vimage, 0, 0, null);
+        }finally{
+            g.dispose();
+        }
+        Toolkit.getDefaultToolkit().sync();
+        return !this.vimage.contentsLost();
+    }
+}
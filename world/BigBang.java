@@ -27,11 +27,12 @@ import javax.swing.*;
 import javax.swing.event.PopupMenuEvent;
 import javax.swing.event.PopupMenuListener;
 
+import util.FuncObj;
+import util.ScreenBuffer;
 import util.Util;
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
-import java.awt.RenderingHints;
+import java.awt.Rectangle;
 import java.awt.event.*;
 import java.lang.reflect.Method;
 import java.util.Timer;
@@ -70,6 +71,8 @@ import image.*;
  *      <tr><td class="event">OnMouse</td><td><tt><span class='fun'>onMouse</span>(<i>handler</i>)</tt></td><td><tt>World <span class='fun'>apply</span>(World w, <span class="keyw">int</span> x, <span class="keyw">int</span> y, String what)</tt></td><td>no</td><tr/>
  *      <tr><td class="event">OnKey</td><td><tt><span class='fun'>onKey</span>(<i>handler</i>)</tt></td><td><tt>World <span class='fun'>apply</span>(World w, String key)</tt></td><td>no</td><tr/>
  *      <tr><td class="event">OnRelease</td><td><tt><span class='fun'>onRelease</span>(<i>handler</i>)</tt></td><td><tt>World <span class='fun'>apply</span>(World w, String key)</tt></td><td>no</td><tr/>
+ *      <tr><td class="event">OnMouseBatch</td><td><tt><span class='fun'>onMouseBatch</span>(<i>handler</i>)</tt></td><td><tt>World <span class='fun'>apply</span>(World w, MouseBatch events)</tt></td><td>no</td><tr/>
+ *      <tr><td class="event">OnKeyBatch</td><td><tt><span class='fun'>onKeyBatch</span>(<i>handler</i>)</tt></td><td><tt>World <span class='fun'>apply</span>(World w, KeyBatch events)</tt></td><td>no</td><tr/>
  *      <tr><td class="event">StopWhen</td><td><tt><span class='fun'>stopWhen</span>(<i>handler</i>)</tt></td><td><tt><span class="keyw">boolean</span> <span class='fun'>apply</span>(World w)</tt></td><td>no</td><tr/>
  *      <tr><td class="event">LastScene</td><td><tt><span class='fun'>lastScene</span>(<i>handler</i>)</tt></td><td><tt>Scene <span class='fun'>apply</span>(World w)</tt></td><td>no</td><tr/>
  *    </table><br/>
@@ -125,6 +128,38 @@ public class BigBang{
     protected Method stopwhenM;
     protected Object lastscene;
     protected Method lastsceneM;
+    /** Other settings and handlers */
+    private Options opts;
+    /** Handlers compiled for calling when the animation starts */
+    private FuncObj ondrawF, ontickF, onmouseF, onkeyF, onreleaseF, stopwhenF, lastsceneF,
+                    onmousebatchF, onkeybatchF;
+    
+    /** Settings and handlers beyond the basic ones */
+    private static class Options{
+        /** Game loop settings, or null to tick with a Timer */
+        GameLoop loop;
+        /** Give only the latest of a run of moves/drags to the mouse handler? */
+        boolean coalesce;
+        Object onmousebatch;
+        Method onmousebatchM;
+        Object onkeybatch;
+        Method onkeybatchM;
+        /** Draw frames straight to the screen, see {@link ScreenBuffer}? */
+        boolean active;
+        
+        Options(){}
+        Options(Options o){
+            this.loop = o.loop;
+            this.coalesce = o.coalesce;
+            this.onmousebatch = o.onmousebatch;
+            this.onmousebatchM = o.onmousebatchM;
+            this.onkeybatch = o.onkeybatch;
+            this.onkeybatchM = o.onkeybatchM;
+            this.active = o.active;
+        }
+    }
+    /** Handler of the running animation, if any */
+    private volatile Handler handler;
     
     
     /** Create a new BigBang with a value of the initial World */
@@ -132,7 +167,7 @@ public class BigBang{
         this(initial, initial.getClass(), 0.02,
                 null, null, null, null, null, null,
                 null, null, null, null, null, null,
-                null, null);
+                null, null, new Options());
     }
     /** Install a Draw Handler into this BigBang.  The Draw handler
      *    requires an apply method [World -&gt; Scene], though the
@@ -143,7 +178,7 @@ public class BigBang{
         return new BigBang(this.initial, this.worldType, this.time,
                 ondraw, ondrawM, this.ontick, this.ontickM,
                 this.onmouse, this.onmouseM, this.onkey, this.onkeyM, this.onrelease, this.onreleaseM,
-                this.stopwhen, this.stopwhenM, this.lastscene, this.lastsceneM);
+                this.stopwhen, this.stopwhenM, this.lastscene, this.lastsceneM, this.opts);
     }
     /** Install a Tick Handler at a tick rate of 1/20th of a second. */
     public BigBang onTick(Object ontick){
@@ -158,7 +193,7 @@ public class BigBang{
         return new BigBang(this.initial, this.worldType, time,
                 this.ondraw, this.ondrawM, ontick, ontickM,
                 this.onmouse, this.onmouseM, this.onkey, this.onkeyM, this.onrelease, this.onreleaseM,
-                this.stopwhen, this.stopwhenM, this.lastscene, this.lastsceneM);
+                this.stopwhen, this.stopwhenM, this.lastscene, this.lastsceneM, this.opts);
     }
     /** Install a Mouse Handler into this BigBang.  The Mouse handler
      *    requires an apply method [World -&gt; World], though the
@@ -169,7 +204,7 @@ public class BigBang{
         return new BigBang(this.initial, this.worldType, this.time,
                 this.ondraw, this.ondrawM, this.ontick, this.ontickM,
                 onmouse, onmouseM, this.onkey, this.onkeyM, this.onrelease, this.onreleaseM,
-                this.stopwhen, this.stopwhenM, this.lastscene, this.lastsceneM);
+                this.stopwhen, this.stopwhenM, this.lastscene, this.lastsceneM, this.opts);
     }
     /** Install a Key Handler into this BigBang.  The Key handler
      *    requires an apply method [World String -&gt; World], though
@@ -180,7 +215,7 @@ public class BigBang{
         return new BigBang(this.initial, this.worldType, this.time,
                 this.ondraw, this.ondrawM, this.ontick, this.ontickM,
                 this.onmouse, this.onmouseM, onkey, onkeyM, this.onrelease, this.onreleaseM,
-                this.stopwhen, this.stopwhenM, this.lastscene, this.lastsceneM);
+                this.stopwhen, this.stopwhenM, this.lastscene, this.lastsceneM, this.opts);
     }
     /** Install a Key Release Handler into this BigBang.  The Key
      *    Release handler requires an apply method [World String -&gt;
@@ -191,7 +226,7 @@ public class BigBang{
         return new BigBang(this.initial, this.worldType, this.time,
                 this.ondraw, this.ondrawM, this.ontick, this.ontickM,
                 this.onmouse, this.onmouseM, this.onkey, this.onkeyM, onrelease, onreleaseM,
-                this.stopwhen, this.stopwhenM, this.lastscene, this.lastsceneM);
+                this.stopwhen, this.stopwhenM, this.lastscene, this.lastsceneM, this.opts);
     }
     /** Install a StopWhen Handler into this BigBang.  The StopWhen
      *    handler requires an apply method [World -&gt; Boolean],
@@ -206,7 +241,7 @@ public class BigBang{
         return new BigBang(this.initial, this.worldType, this.time,
                 this.ondraw, this.ondrawM, this.ontick, this.ontickM,
                 this.onmouse, this.onmouseM, this.onkey, this.onkeyM, this.onrelease, this.onreleaseM,
-                stopwhen, stopwhenM, this.lastscene, this.lastsceneM);
+                stopwhen, stopwhenM, this.lastscene, this.lastsceneM, this.opts);
     }
     /** Install a LastScene Handler into this BigBang.  The LastScene
      *    handler requires an apply method [World -&gt; Scene], though
@@ -219,7 +254,68 @@ public class BigBang{
                 this.ondraw, this.ondrawM, this.ontick, this.ontickM,
                 this.onmouse, this.onmouseM,
                 this.onkey, this.onkeyM, this.onrelease, this.onreleaseM,
-                this.stopwhen, this.stopwhenM, lastscene, lastsceneM);
+                this.stopwhen, this.stopwhenM, lastscene, lastsceneM, this.opts);
+    }
+    
+    /** Run the animation as a fixed-timestep game loop with the default
+     *    settings, see {@link GameLoop} */
+    public BigBang gameLoop(){
+        return this.gameLoop(new GameLoop());
+    }
+    /** Run the animation as a fixed-timestep game loop: the World is ticked
+     *    at exactly the tick rate, and drawn at the (separate) frame rate
+     *    of the given GameLoop, rather than after every change */
+    public BigBang gameLoop(GameLoop loop){
+        Options opts = new Options(this.opts);
+        opts.loop = loop;
+        return this.with(opts);
+    }
+    /** Coalesce mouse motion: when the World falls behind, only the latest
+     *    of a run of waiting "move" (or "drag") events is given to the
+     *    Mouse handler, rather than one new World per event */
+    public BigBang coalesceMoves(boolean coalesce){
+        Options opts = new Options(this.opts);
+        opts.coalesce = coalesce;
+        return this.with(opts);
+    }
+    /** Install a Mouse Batch Handler into this BigBang.  The handler
+     *    requires an apply method [World MouseBatch -&gt; World], and is
+     *    given all the mouse events received since the last frame at once
+     *    (the Mouse handler, if any, is then not used). */
+    public BigBang onMouseBatch(Object onmousebatch){
+        Method onmousebatchM = checkTypes(onmousebatch, new Class<?>[]{this.worldType, MouseBatch.class}, this.worldType, "OnMouseBatch", true, true);
+        Options opts = new Options(this.opts);
+        opts.onmousebatch = onmousebatch;
+        opts.onmousebatchM = onmousebatchM;
+        return this.with(opts);
+    }
+    /** Install a Key Batch Handler into this BigBang.  The handler
+     *    requires an apply method [World KeyBatch -&gt; World], and is
+     *    given all the key presses and releases received since the last
+     *    frame at once (the Key and Release handlers, if any, are then not
+     *    used). */
+    public BigBang onKeyBatch(Object onkeybatch){
+        Method onkeybatchM = checkTypes(onkeybatch, new Class<?>[]{this.worldType, KeyBatch.class}, this.worldType, "OnKeyBatch", true, true);
+        Options opts = new Options(this.opts);
+        opts.onkeybatch = onkeybatch;
+        opts.onkeybatchM = onkeybatchM;
+        return this.with(opts);
+    }
+    /** Use active rendering: frames are drawn into an accelerated buffer
+     *    and copied straight to the window by the World (or game loop)
+     *    thread, rather than waiting for Swing to repaint it.  Ignored when
+     *    running headless. */
+    public BigBang activeRendering(boolean active){
+        Options opts = new Options(this.opts);
+        opts.active = active;
+        return this.with(opts);
+    }
+    /** A copy of this BigBang with the given Options */
+    private BigBang with(Options opts){
+        return new BigBang(this.initial, this.worldType, this.time,
+                this.ondraw, this.ondrawM, this.ontick, this.ontickM,
+                this.onmouse, this.onmouseM, this.onkey, this.onkeyM, this.onrelease, this.onreleaseM,
+                this.stopwhen, this.stopwhenM, this.lastscene, this.lastsceneM, opts);
     }
     
     // Private constructor...
@@ -227,7 +323,7 @@ public class BigBang{
                     Object ondraw, Method ondrawM, Object ontick, Method ontickM,
                     Object onmouse, Method onmouseM, Object onkey, Method onkeyM,
                     Object onrelease, Method onreleaseM, Object stopwhen, Method stopwhenM,
-                    Object lastscene, Method lastsceneM){
+                    Object lastscene, Method lastsceneM, Options opts){
         this.initial = init;
         this.worldType = worldT;
         this.time = time;
@@ -245,6 +341,7 @@ public class BigBang{
         this.stopwhenM = stopwhenM;
         this.lastscene = lastscene;
         this.lastsceneM = lastsceneM;
+        this.opts = opts;
     }    
     
     /** Gap left around the border of the Window */
@@ -271,37 +368,65 @@ public class BigBang{
                 ret.getSimpleName()+" "+Util.funcObjMethName+"("+Util.argsString(args,0)+")");
     }
     
+    /** Compile the installed handlers, so events do not go through
+     *    reflection (see {@link FuncObj}) */
+    private void compile(){
+        this.ondrawF = bind(this.ondraw, this.ondrawM, FuncObj.UNARY);
+        this.ontickF = bind(this.ontick, this.ontickM, FuncObj.UNARY);
+        this.onmouseF = bind(this.onmouse, this.onmouseM, FuncObj.MOUSE);
+        this.onkeyF = bind(this.onkey, this.onkeyM, FuncObj.KEY);
+        this.onreleaseF = bind(this.onrelease, this.onreleaseM, FuncObj.KEY);
+        this.stopwhenF = bind(this.stopwhen, this.stopwhenM, FuncObj.PRED);
+        this.lastsceneF = bind(this.lastscene, this.lastsceneM, FuncObj.UNARY);
+        this.onmousebatchF = bind(this.opts.onmousebatch, this.opts.onmousebatchM, FuncObj.BINARY);
+        this.onkeybatchF = bind(this.opts.onkeybatch, this.opts.onkeybatchM, FuncObj.BINARY);
+    }
+    private static FuncObj bind(Object f, Method m, java.lang.invoke.MethodType shape){
+        if(f == null)return null;
+        return FuncObj.bind(f, m, shape);
+    }
+    
     /** Wrapper for the Tick Handler */
     private Object doOnTick(Object w) {
-        return Util.applyFunc(this.ontick, this.ontickM, new Object[]{w});
+        if(this.ontickF == null)return w;
+        return this.ontickF.call(w);
     }
     /** Wrapper for the Mouse Handler */
     private Object doOnMouseEvent(Object w, int x, int y, String me) {
-        return Util.applyFunc(this.onmouse, this.onmouseM, new Object[]{w,x-SPACE,y-SPACE,me});
+        if(this.onmouseF == null)return w;
+        return this.onmouseF.call(w, x-SPACE, y-SPACE, me);
+    }
+    /** Wrapper for the Mouse Batch Handler */
+    private Object doOnMouseBatch(Object w, MouseBatch b){
+        return this.onmousebatchF.call(w, (Object)b);
+    }
+    /** Wrapper for the Key Batch Handler */
+    private Object doOnKeyBatch(Object w, KeyBatch b){
+        return this.onkeybatchF.call(w, (Object)b);
     }
     /** Wrapper for the Key Handler */
     private Object doOnKeyEvent(Object w, String ke){
-        if(ke.length() == 0)return w;
-        return Util.applyFunc(this.onkey, this.onkeyM, new Object[]{w,ke});
+        if(ke.length() == 0 || this.onkeyF == null)return w;
+        return this.onkeyF.call(w, ke);
     }
     /** Wrapper for the Key Release Handler */
     private Object doOnReleaseEvent(Object w, String ke){
-        if(ke.length() == 0)return w;
-        return Util.applyFunc(this.onrelease, this.onreleaseM, new Object[]{w,ke});
+        if(ke.length() == 0 || this.onreleaseF == null)return w;
+        return this.onreleaseF.call(w, ke);
     }
     /** Wrapper for the Draw Handler */
     private Scene doOnDraw(Object w) {
-        return (Scene)Util.applyFunc(this.ondraw, this.ondrawM, new Object[]{w});
+        return (Scene)this.ondrawF.call(w);
     }
     /** Wrapper for the StopWhen Handler */
     private boolean doStopWhen(Object w) {
-        if(this.stopwhen == null)return false;
-        return (Boolean)Util.applyFunc(this.stopwhen, this.stopwhenM, new Object[]{w});
+        if(this.stopwhenF == null)return false;
+        return this.stopwhenF.test(w);
     }
     /** Wrapper for the LastScene Handler */
     private Scene doLastScene(Object w) {
-        if(this.lastscene == null)return doOnDraw(w);
-        return (Scene)Util.applyFunc(this.lastscene, this.lastsceneM, new Object[]{w});
+        if(this.lastsceneF == null)return doOnDraw(w);
+        return (Scene)this.lastsceneF.call(w);
     }
     
     /** Construct and run the animation/interaction system.  For the
@@ -321,6 +446,7 @@ public class BigBang{
 
         if(this.ondraw == null)
             throw new RuntimeException("No World Draw Handler");
+        this.compile();
         JDialog f = new JDialog((JFrame)null, title, true);
         Scene scn = doOnDraw(this.initial);
         f.setSize((int)(SPACE*2+Math.max(20, 14+scn.width())),
@@ -328,75 +454,344 @@ public class BigBang{
         
         f.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
         f.setResizable(false);
-        final Handler handler = new Handler(this,this.initial, scn,
-                new BufferedImage((int)(scn.width()+2*SPACE), (int)(scn.height()+2*SPACE), BufferedImage.TYPE_INT_RGB), f);
+        final Handler handler = new Handler(this,this.initial, scn, f);
         f.getContentPane().add(handler);
+        this.handler = handler;
         f.setVisible(true);
         handler.run.cancel();
+        handler.stop();
+        this.handler = null;
         return handler.w;        
     }
+    /** Ask the running animation to redraw its whole Scene, even if the
+     *    World has not changed, e.g., when an {@link image.AsyncImage} has
+     *    finished loading.  Can be called from any thread. */
+    public void redraw(){
+        Handler h = this.handler;
+        if(h != null)h.redraw();
+    }
     /** Handles the nitty-gritty of world updates and interfacing with Swing */
     static class Handler extends javax.swing.JComponent
                          implements MouseListener,KeyListener,MouseMotionListener{
         private static final long serialVersionUID = 1L;
         BigBang world;
-        Object w;
+        /** The current World, only changed by the World thread */
+        volatile Object w;
+        /** The latest Scene drawn by the World thread, for Swing to paint */
+        volatile Snapshot shown;
         Scene scnBuffer;
-        BufferedImage buffer;
-        Graphics2D graph;
+        /** The back buffer, also the lock for drawing into it */
+        final ScreenBuffer screen;
         Timer run;
         TimerTask ticker;
-        boolean isRunning = false;
-        boolean isDone = false;
+        volatile boolean isRunning = false;
+        volatile boolean isDone = false;
+        /** Must the whole Scene be redrawn, even if it's the same? */
+        volatile boolean stale = false;
+        /** Are we running as a game loop? */
+        final boolean gameLoop;
+        /** Events waiting for the World thread */
+        final Inbox<Event> inbox = new Inbox<Event>();
+        /** The World thread (the game loop thread in game loop mode) */
+        Thread actor;
+        /** Is a tick waiting in the inbox? */
+        volatile boolean tickQueued = false;
+        /** Has the World changed since its Scene was drawn?  Only used by
+         *    the World thread */
+        boolean changed = false;
+        /** Is there a Scene the game loop has not painted yet? */
+        volatile boolean fresh = false;
+        /** Events collected for the batch handlers (World thread only), or
+         *    null if there is no such handler */
+        final MouseBatch.Builder mouseBatch;
+        final KeyBatch.Builder keyBatch;
+        
+        /** What to paint: a World and its Scene, published by the World
+         *    thread and never changed */
+        static final class Snapshot{
+            final Object w;
+            final Scene scene;
+            Snapshot(Object w, Scene scene){
+                this.w = w;
+                this.scene = scene;
+            }
+        }
+        /** An event for the World thread */
+        static final class Event{
+            static final int TICK = 0, MOUSE = 1, KEY = 2, RELEASE = 3;
+            static final Event TICK_EVENT = new Event(TICK, 0, 0, null);
+            final int kind, x, y;
+            final String what;
+            Event(int kind, int x, int y, String what){
+                this.kind = kind;
+                this.x = x;
+                this.y = y;
+                this.what = what;
+            }
+        }
         
         /** Create a new Handler for all the World's events */
-        Handler(BigBang world, Object ww, Scene scn, BufferedImage buff, JDialog dia){
+        Handler(BigBang world, Object ww, Scene scn, JDialog dia){
             this.world = world;
             this.w = ww;
+            this.shown = new Snapshot(ww, scn);
+            this.gameLoop = (world.opts.loop != null);
+            this.mouseBatch = (world.opts.onmousebatch != null) ? new MouseBatch.Builder() : null;
+            this.keyBatch = (world.opts.onkeybatch != null) ? new KeyBatch.Builder() : null;
 
             this.scnBuffer = null;
-            this.buffer = buff;
-            this.graph = buff.createGraphics();
-            this.graph.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            this.graph.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+            this.screen = new ScreenBuffer(this, (int)(scn.width()+2*SPACE), (int)(scn.height()+2*SPACE),
+                                           world.opts.active);
             this.run = new Timer();
             addMouseListener(this);
-            if(world.onmouse != null){
+            if(world.onmouse != null || this.mouseBatch != null){
                 addMouseMotionListener(this);
             }
-            if(world.onkey != null)
+            if(world.onkey != null || this.keyBatch != null)
                 dia.addKeyListener(this);
             this.isRunning = true;
-            if(world.ontick != null){
-                this.run.scheduleAtFixedRate(this.ticker = new TimerTask(){
-                    public void run(){ tickAction(); }
-                }, 200, (int)(world.time*1000));
+            if(this.gameLoop){
+                this.startLoop(world.opts.loop);
+            }else{
+                this.actor = new Thread("BigBang World"){
+                    public void run(){ actorLoop(); }
+                };
+                this.actor.setDaemon(true);
+                this.actor.start();
+                if(world.ontick != null){
+                    this.run.scheduleAtFixedRate(this.ticker = new TimerTask(){
+                        public void run(){ tickAction(); }
+                    }, 200, (int)(world.time*1000));
+                }
+            }
+        }
+        /** Start a thread running the game loop, which is also the World
+         *    thread */
+        private void startLoop(final GameLoop gl){
+            final double step = (this.world.ontick != null) ? this.world.time : 0;
+            this.actor = new Thread("BigBang Loop"){
+                public void run(){
+                    gl.run(new GameLoop.Steps(){
+                        public void tick(){
+                            drain();
+                            handle(Event.TICK_EVENT);
+                        }
+                        public void frame(){
+                            drain();
+                            flush();
+                            render();
+                            frameAction();
+                        }
+                        public boolean running(){ return !Handler.this.isDone; }
+                    }, step, 200000000L);
+                }
+            };
+            this.actor.setDaemon(true);
+            this.actor.start();
+        }
+        /** Stop the World thread, waiting (a little) for it to finish */
+        void stop(){
+            if(this.actor == null)return;
+            this.actor.interrupt();
+            try{
+                this.actor.join(1000);
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        }
+        /** Run events as they arrive, drawing the World's Scene whenever
+         *    the inbox is empty (run by the World thread) */
+        void actorLoop(){
+            try{
+                while(!this.isDone){
+                    this.handle(this.inbox.take());
+                    this.drain();
+                    this.flush();
+                    this.render();
+                }
+            }catch(InterruptedException e){
+                // Window closed
+            }
+        }
+        /** Run all the waiting events (World thread only) */
+        void drain(){
+            Event e;
+            while((e = this.inbox.poll()) != null)
+                this.handle(e);
+        }
+        /** Send an event to the World thread */
+        void post(Event e){
+            if(this.isRunning && !this.isDone)
+                this.inbox.put(e);
+        }
+        /** Run a single event (World thread only) */
+        void handle(Event e){
+            if(e.kind == Event.TICK)
+                this.tickQueued = false;
+            if(!this.isRunning || this.isDone)return;
+            Object w = this.w;
+            try{
+                switch(e.kind){
+                case Event.TICK: replace(this.world.doOnTick(w)); break;
+                case Event.MOUSE:
+                    if(this.mouseBatch != null)
+                        this.mouseBatch.add(e.x-SPACE, e.y-SPACE, e.what);
+                    else if(!this.superseded(e))
+                        replace(this.world.doOnMouseEvent(w, e.x, e.y, e.what));
+                    break;
+                case Event.KEY:
+                case Event.RELEASE:
+                    if(this.keyBatch != null){
+                        if(e.what.length() > 0)
+                            this.keyBatch.add(e.what, e.kind == Event.KEY);
+                    }else if(e.kind == Event.KEY){
+                        replace(this.world.doOnKeyEvent(w, e.what));
+                    }else{
+                        replace(this.world.doOnReleaseEvent(w, e.what));
+                    }
+                    break;
+                }
+            }catch(RuntimeException ex){
+                // Keep the World thread alive, as Swing would have
+                ex.printStackTrace();
+            }
+        }
+        /** Is the given mouse event a move/drag that is to be coalesced with
+         *    the same kind of event right behind it? */
+        private boolean superseded(Event e){
+            if(!this.world.opts.coalesce || (!MOUSE_MOVE.equals(e.what) && !MOUSE_DRAG.equals(e.what)))
+                return false;
+            Event next = this.inbox.peek();
+            return next != null && next.kind == Event.MOUSE && e.what.equals(next.what);
+        }
+        /** Give the batch handlers the events collected since the last
+         *    frame (World thread only) */
+        void flush(){
+            try{
+                if(this.mouseBatch != null && this.mouseBatch.size > 0 && this.isRunning && !this.isDone)
+                    replace(this.world.doOnMouseBatch(this.w, this.mouseBatch.take()));
+                if(this.keyBatch != null && this.keyBatch.size > 0 && this.isRunning && !this.isDone)
+                    replace(this.world.doOnKeyBatch(this.w, this.keyBatch.take()));
+            }catch(RuntimeException ex){
+                ex.printStackTrace();
+            }
+        }
+        /** Draw the current World and publish its Scene, if it has changed
+         *    (World thread only) */
+        void render(){
+            if(!this.changed)return;
+            this.changed = false;
+            Object w = this.w;
+            Scene scn = this.isDone ? this.world.doLastScene(w) : this.world.doOnDraw(w);
+            this.shown = new Snapshot(w, scn);
+            if(this.gameLoop && !this.isDone)
+                this.fresh = true;
+            else
+                present();
+        }
+        /** Paint the latest game loop frame (if there is a new one),
+         *    waiting until it is on the screen */
+        void frameAction(){
+            if(!this.fresh && !this.stale)return;
+            this.fresh = false;
+            if(this.screen.isActive()){
+                present();
+                return;
+            }
+            try{
+                SwingUtilities.invokeAndWait(new Runnable(){
+                    public void run(){ paintImmediately(0, 0, getWidth(), getHeight()); }
+                });
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }catch(java.lang.reflect.InvocationTargetException e){
+                throw new RuntimeException(e.getCause());
             }
         }
         /** Swing uses a <tt>paint(Graphics)</tt> method to draw the
          *    component (Handler) into the window. */
         public void paint(java.awt.Graphics g){
-            Scene curr;
-            if(!this.isDone)
-                curr = this.world.doOnDraw(this.w);
-            else
-                curr = this.world.doLastScene(this.w);
+            synchronized(this.screen){
+                this.update();
+                this.screen.paint(g);
+            }
+        }
+        /** Put the latest Scene on the screen: an active buffer is drawn and
+         *    shown by the calling thread, otherwise Swing will paint it */
+        void present(){
+            if(!this.screen.isActive()){
+                repaint();
+                return;
+            }
+            synchronized(this.screen){
+                do{
+                    this.update();
+                }while(!this.screen.show());
+            }
+        }
+        /** Draw the latest Scene into the back buffer, if it isn't there
+         *    already (holding the buffer's lock) */
+        private void update(){
+            // The Scene was drawn by the World thread, here it is only painted
+            Scene curr = this.shown.scene;
+            Graphics2D graph = this.screen.graphics();
+            boolean all = this.stale || this.screen.restored();
             
-            if(curr != this.scnBuffer){
+            // Scenes are compared structurally, so an equal (new) Scene
+            //   does not need to be drawn again
+            if(all || !curr.equals(this.scnBuffer)){
+                Rectangle dirty = all ? null : this.dirtyRegion(curr);
+                this.stale = false;
                 this.scnBuffer = curr;
-                this.graph.setColor(Color.white);
-                this.graph.fillRect(0,0, this.getWidth(), this.getHeight());
-                this.graph.clipRect(SPACE, SPACE, this.buffer.getWidth()-SPACE*2, this.buffer.getHeight()-SPACE*2);
-                this.scnBuffer.paint(this.graph,SPACE,SPACE);
+                if(dirty == null){
+                    graph.setClip(null);
+                    graph.setColor(Color.white);
+                    graph.fillRect(0,0, this.getWidth(), this.getHeight());
+                    graph.clipRect(SPACE, SPACE, this.screen.getWidth()-SPACE*2, this.screen.getHeight()-SPACE*2);
+                    this.scnBuffer.paint(graph,SPACE,SPACE);
+                }else if(!dirty.isEmpty()){
+                    // Only redraw the part of the Scene that changed
+                    graph.setClip(dirty);
+                    graph.setColor(Color.white);
+                    graph.fillRect(dirty.x, dirty.y, dirty.width, dirty.height);
+                    this.scnBuffer.displayList().paint(graph, SPACE, SPACE, dirty);
+                }
             }
-            g.drawImage(this.buffer, 0, 0, null);
+        }
+        /** Redraw the whole Scene the next time we paint */
+        void redraw(){
+            this.stale = true;
+            if(!this.gameLoop || this.isDone)
+                repaint();
+        }
+        /** Calculate the region of the buffer that must be redrawn to
+         *    replace the last Scene with the given one.  Returns
+         *    <tt>null</tt> if the whole buffer should be redrawn, e.g.,
+         *    when the Scenes share no placed images, or most of it has
+         *    changed anyway. */
+        private Rectangle dirtyRegion(Scene curr){
+            if(this.scnBuffer == null)
+                return null;
+            Rectangle dirty = curr.changedFrom(this.scnBuffer);
+            if(dirty == null || dirty.isEmpty())
+                return dirty;
+            dirty.translate(SPACE, SPACE);
+            dirty = dirty.intersection(new Rectangle(SPACE, SPACE, this.screen.getWidth()-SPACE*2,
+                                                     this.screen.getHeight()-SPACE*2));
+            if(dirty.isEmpty())
+                return dirty;
+            if(2L*dirty.width*dirty.height > (long)this.screen.getWidth()*this.screen.getHeight())
+                return null;
+            return dirty;
         }
         /** Rather than Swing timers, we use to java.util.Timer to
          *    provide compatibility with Android (i.e., so the code
-         *    for both versions looks the same). */
+         *    for both versions looks the same).  Ticks are run by the
+         *    World thread, and skipped while one is still waiting. */
         public void tickAction(){
-            if(!this.isRunning || this.isDone)return;
-            replace(this.world.doOnTick(this.w));
+            if(!this.isRunning || this.isDone || this.tickQueued)return;
+            this.tickQueued = true;
+            this.post(Event.TICK_EVENT);
         }
         /** Support saving screenshots... */
         JPopupMenu popup = new JPopupMenu("World Options");
@@ -462,43 +857,43 @@ public class BigBang{
                     }
                 }.start();
             }else{
-                if(this.isRunning && !this.isDone)
-                    replace(this.world.doOnMouseEvent(this.w, e.getX(), e.getY(), MOUSE_DOWN));
+                this.post(new Event(Event.MOUSE, e.getX(), e.getY(), MOUSE_DOWN));
             }
         }
         /** Mouse click/move/event Methods */
         public void mouseClicked(MouseEvent e){}
-        public void mouseEntered(MouseEvent e){ if(this.isRunning && !this.isDone)replace(this.world.doOnMouseEvent(this.w, e.getX(), e.getY(), MOUSE_ENTER)); }
-        public void mouseExited(MouseEvent e){ if(this.isRunning && !this.isDone)replace(this.world.doOnMouseEvent(this.w, e.getX(), e.getY(), MOUSE_LEAVE)); }
-        public void mouseReleased(MouseEvent e){ if(this.isRunning && !this.isDone)replace(this.world.doOnMouseEvent(this.w, e.getX(), e.getY(), MOUSE_UP)); }
-        public void mouseDragged(MouseEvent e){ if(this.isRunning && !this.isDone)replace(this.world.doOnMouseEvent(this.w, e.getX(), e.getY(), MOUSE_DRAG)); }
-        public void mouseMoved(MouseEvent e){ if(this.isRunning && !this.isDone)replace(this.world.doOnMouseEvent(this.w, e.getX(), e.getY(), MOUSE_MOVE)); }
+        public void mouseEntered(MouseEvent e){ this.post(new Event(Event.MOUSE, e.getX(), e.getY(), MOUSE_ENTER)); }
+        public void mouseExited(MouseEvent e){ this.post(new Event(Event.MOUSE, e.getX(), e.getY(), MOUSE_LEAVE)); }
+        public void mouseReleased(MouseEvent e){ this.post(new Event(Event.MOUSE, e.getX(), e.getY(), MOUSE_UP)); }
+        public void mouseDragged(MouseEvent e){ this.post(new Event(Event.MOUSE, e.getX(), e.getY(), MOUSE_DRAG)); }
+        public void mouseMoved(MouseEvent e){ this.post(new Event(Event.MOUSE, e.getX(), e.getY(), MOUSE_MOVE)); }
         /** Keys are converted to strings to simplify handling */
         public void keyPressed(KeyEvent e){
-            if(this.isRunning && !this.isDone)
-                replace(this.world.doOnKeyEvent(this.w, convert(e.getKeyCode(), ""+e.getKeyChar())));    
+            this.post(new Event(Event.KEY, 0, 0, convert(e.getKeyCode(), ""+e.getKeyChar())));
         }
         public void keyReleased(KeyEvent e){
-            if(this.isRunning && !this.isDone)
-                replace(this.world.doOnReleaseEvent(this.w, convert(e.getKeyCode(), ""+e.getKeyChar())));
+            this.post(new Event(Event.RELEASE, 0, 0, convert(e.getKeyCode(), ""+e.getKeyChar())));
         }
         public void keyTyped(KeyEvent e){
             //if(isRunning && !isDone)replace(world.doOnKeyEvent(w, ""+e.getKeyChar()));    
         }
         
+        /** Move to the given World (World thread only) */
         private void replace(Object w){
-            // This isn't enough when mutation is involved...
             if(!this.isRunning || this.isDone)return;
             
-            if(this.isRunning && this.world.doStopWhen(w)){
+            boolean done = this.world.doStopWhen(w);
+            if(!this.w.equals(w))
+                this.changed = true;
+            this.w = w;
+            if(done){
                 this.isRunning = false;
                 this.isDone = true;
                 this.run.cancel();
+                // Draw the last Scene
+                this.changed = true;
+                this.render();
             }
-            
-            boolean change = !this.w.equals(w);
-            this.w = w;
-            if(change)repaint();
         }
         private String convert(int code, String ch){
             switch(code){
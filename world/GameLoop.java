@@ -0,0 +1,141 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./world/GameLoop.java                                         *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package world;
+
+/** Settings for running a {@link BigBang} as a fixed-timestep game loop,
+ *    see {@link BigBang#gameLoop(GameLoop)}.  The World is ticked at
+ *    exactly the tick rate of the animation (measured with
+ *    <tt>System.nanoTime</tt>), and drawn at a separate frame rate.  When
+ *    ticks (or drawing) take too long, at most <tt>maxTicks</tt> ticks are
+ *    run to catch up before each frame and the rest of the backlog is
+ *    dropped, so the simulation slows down steadily rather than bunching
+ *    ticks together, and the frame rate drops instead. */
+public class GameLoop{
+    /** How the loop waits for the next tick or frame */
+    public enum Pacing{
+        /** Sleep until the deadline (cheap, but only as accurate as the
+         *    OS timer) */
+        SLEEP,
+        /** Sleep until just before the deadline, then yield until it
+         *    arrives (accurate, but keeps a core busy for a moment) */
+        SPIN
+    }
+    
+    /** Default frame rate: 60 frames per second */
+    public static double DEFAULT_FPS = 60;
+    /** Default maximum number of ticks run before a frame */
+    public static int DEFAULT_MAX_TICKS = 5;
+    /** How long before a deadline SPIN stops sleeping (nanoseconds) */
+    static final long SPIN_NANOS = 2000000;
+    
+    final double fps;
+    final int maxTicks;
+    final Pacing pacing;
+    
+    /** A game loop at the default frame rate and catch-up limit */
+    public GameLoop(){
+        this(DEFAULT_FPS, DEFAULT_MAX_TICKS, Pacing.SPIN);
+    }
+    /** A game loop drawing the given number of frames per second, running
+     *    at most <tt>maxTicks</tt> ticks before each frame, and waiting with
+     *    the given Pacing */
+    public GameLoop(double fps, int maxTicks, Pacing pacing){
+        if(!(fps > 0))
+            throw new RuntimeException("Bad Frame Rate: "+fps);
+        if(maxTicks < 1)
+            throw new RuntimeException("Bad Maximum Ticks: "+maxTicks);
+        this.fps = fps;
+        this.maxTicks = maxTicks;
+        this.pacing = pacing;
+    }
+    
+    /** What the loop runs: the World's ticks and frames */
+    interface Steps{
+        /** Run one tick */
+        void tick();
+        /** Draw the current World, returning when it has been drawn */
+        void frame();
+        /** Should the loop keep going? */
+        boolean running();
+    }
+    
+    /** Run the loop on the current thread, ticking every <tt>step</tt>
+     *    seconds (or never, if <tt>step</tt> is not positive) until the
+     *    Steps stop running or the thread is interrupted.  Returns the
+     *    number of ticks that were dropped. */
+    long run(Steps steps, double step, long delay){
+        long tickNanos = (step > 0) ? Math.max(1, (long)(step*1e9)) : 0,
+             frameNanos = Math.max(1, (long)(1e9/this.fps)),
+             start = System.nanoTime()+delay,
+             nextTick = start, nextFrame = start, dropped = 0;
+        try{
+            this.waitUntil(start);
+            while(steps.running()){
+                long now = System.nanoTime();
+                if(tickNanos > 0){
+                    int n = 0;
+                    while(now-nextTick >= 0 && n < this.maxTicks && steps.running()){
+                        steps.tick();
+                        nextTick += tickNanos;
+                        n++;
+                    }
+                    if(now-nextTick >= 0){
+                        // Too far behind, give up on the rest of the backlog
+                        long behind = (now-nextTick)/tickNanos+1;
+                        dropped += behind;
+                        nextTick += behind*tickNanos;
+                    }
+                }
+                now = System.nanoTime();
+                if(now-nextFrame >= 0){
+                    steps.frame();
+                    nextFrame += frameNanos;
+                    // Skip frames we have no time left for
+                    now = System.nanoTime();
+                    if(now-nextFrame >= 0)
+                        nextFrame = now+frameNanos;
+                }
+                long next = (tickNanos > 0 && nextTick-nextFrame < 0) ? nextTick : nextFrame;
+                this.waitUntil(next);
+            }
+        }catch(InterruptedException e){
+            // Stopped
+        }
+        return dropped;
+    }
+    /** Wait until System.nanoTime reaches the given deadline */
+    private void waitUntil(long deadline) throws InterruptedException{
+        long left = deadline-System.nanoTime();
+        if(this.pacing == Pacing.SPIN)
+            left -= SPIN_NANOS;
+        if(left > 0)
+            Thread.sleep(left/1000000, (int)(left%1000000));
+        while(deadline-System.nanoTime() > 0){
+            if(Thread.interrupted())
+                throw new InterruptedException();
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./world/Inbox.java                                            *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package world;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/** A lock-free, unbounded, multiple-producer/single-consumer queue: any
+ *    thread may <tt>put</tt> items, but only one thread (the consumer) may
+ *    <tt>poll</tt> or <tt>take</tt> them.  Producers link new nodes at the
+ *    tail with a single atomic swap, and the consumer follows the links
+ *    from the head, so neither ever blocks the other. */
+final class Inbox<T>{
+    /** A linked item */
+    private static final class Node<T>{
+        T item;
+        volatile Node<T> next;
+        Node(T item){ this.item = item; }
+    }
+    
+    /** Last node linked by a producer */
+    private final AtomicReference<Node<T>> tail;
+    /** Last node taken by the consumer (its item has been removed) */
+    private Node<T> head;
+    /** The consumer, while it is (about to be) parked in take() */
+    private volatile Thread waiting;
+    
+    Inbox(){
+        this.head = new Node<T>(null);
+        this.tail = new AtomicReference<Node<T>>(this.head);
+    }
+    
+    /** Add an item (from any thread) */
+    void put(T item){
+        Node<T> n = new Node<T>(item);
+        this.tail.getAndSet(n).next = n;
+        Thread t = this.waiting;
+        if(t != null)
+            LockSupport.unpark(t);
+    }
+    /** Remove the next item, or return null if there is none (consumer only) */
+    T poll(){
+        Node<T> n = this.head.next;
+        if(n == null)
+            return null;
+        this.head = n;
+        T item = n.item;
+        n.item = null;
+        return item;
+    }
+    /** Return the next item without removing it, or null (consumer only) */
+    T peek(){
+        Node<T> n = this.head.next;
+        return (n == null) ? null : n.item;
+    }
+    /** Remove the next item, waiting for one if needed (consumer only) */
+    T take() throws InterruptedException{
+        T item = this.poll();
+        while(item == null){
+            this.waiting = Thread.currentThread();
+            // Check again, in case a producer missed us before we waited
+            item = this.poll();
+            if(item == null)
+                LockSupport.park(this);
+            this.waiting = null;
+            if(Thread.interrupted())
+                throw new InterruptedException();
+            if(item == null)
+                item = this.poll();
+        }
+        return item;
+    }
+}
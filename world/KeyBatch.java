@@ -0,0 +1,69 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./world/KeyBatch.java                                         *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package world;
+
+/** The key events received since the last frame, given to a {@link
+ *    BigBang#onKeyBatch(Object) key batch handler} all at once.  Event
+ *    <tt>i</tt> (from oldest to newest) is a press (<tt>down[i]</tt>) or
+ *    release of the key <tt>key[i]</tt>, named as for a key handler
+ *    (e.g., <tt>BigBang.KEY_ARROW_UP</tt>). */
+public class KeyBatch{
+    /** Number of events */
+    public final int size;
+    /** Name of the key of each event */
+    public final String[] key;
+    /** Was each key pressed (true) or released (false)? */
+    public final boolean[] down;
+    
+    KeyBatch(int size, String[] key, boolean[] down){
+        this.size = size;
+        this.key = key;
+        this.down = down;
+    }
+    
+    /** Collects events for the next KeyBatch (on the World thread) */
+    static class Builder{
+        int size = 0;
+        String[] key = new String[16];
+        boolean[] down = new boolean[16];
+        
+        void add(String k, boolean d){
+            if(this.size == this.key.length){
+                this.key = java.util.Arrays.copyOf(this.key, this.size*2);
+                this.down = java.util.Arrays.copyOf(this.down, this.size*2);
+            }
+            this.key[this.size] = k;
+            this.down[this.size] = d;
+            this.size++;
+        }
+        /** Return the events collected so far, and start over */
+        KeyBatch take(){
+            int n = this.size;
+            this.size = 0;
+            return new KeyBatch(n, java.util.Arrays.copyOf(this.key, n),
+                    java.util.Arrays.copyOf(this.down, n));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                       *
+ *   JavaWorld Library, Copyright 2011 Bryan Chadwick                    *
+ *                                                                       *
+ *   FILE: ./world/MouseBatch.java                                       *
+ *                                                                       *
+ *   This file is part of JavaWorld.                                     *
+ *                                                                       *
+ *   JavaWorld is free software: you can redistribute it and/or          *
+ *   modify it under the terms of the GNU General Public License         *
+ *   as published by the Free Software Foundation, either version        *
+ *   3 of the License, or (at your option) any later version.            *
+ *                                                                       *
+ *   JavaWorld is distributed in the hope that it will be useful,        *
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of      *
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the       *
+ *   GNU General Public License for more details.                        *
+ *                                                                       *
+ *   You should have received a copy of the GNU General Public License   *
+ *   along with JavaWorld.  If not, see <http://www.gnu.org/licenses/>.  *
+ *                                                                       *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package world;
+
+/** The mouse events received since the last frame, given to a {@link
+ *    BigBang#onMouseBatch(Object) mouse batch handler} all at once.  Event
+ *    <tt>i</tt> (from oldest to newest) happened at
+ *    (<tt>x[i]</tt>, <tt>y[i]</tt>), and is one of the mouse event Strings
+ *    of BigBang (e.g., <tt>BigBang.MOUSE_MOVE</tt>), <tt>what[i]</tt>. */
+public class MouseBatch{
+    /** Number of events */
+    public final int size;
+    /** X and Y locations of each event */
+    public final int[] x, y;
+    /** Kind of each event */
+    public final String[] what;
+    
+    MouseBatch(int size, int[] x, int[] y, String[] what){
+        this.size = size;
+        this.x = x;
+        this.y = y;
+        this.what = what;
+    }
+    
+    /** Collects events for the next MouseBatch (on the World thread) */
+    static class Builder{
+        int size = 0;
+        int[] x = new int[16], y = new int[16];
+        String[] what = new String[16];
+        
+        void add(int xx, int yy, String w){
+            if(this.size == this.x.length){
+                this.x = java.util.Arrays.copyOf(this.x, this.size*2);
+                this.y = java.util.Arrays.copyOf(this.y, this.size*2);
+                this.what = java.util.Arrays.copyOf(this.what, this.size*2);
+            }
+            this.x[this.size] = xx;
+            this.y[this.size] = yy;
+            this.what[this.size] = w;
+            this.size++;
+        }
+        /** Return the events collected so far, and start over */
+        MouseBatch take(){
+            int n = this.size;
+            this.size = 0;
+            return new MouseBatch(n, java.util.Arrays.copyOf(this.x, n),
+                    java.util.Arrays.copyOf(this.y, n), java.util.Arrays.copyOf(this.what, n));
+        }
+    }
+}